@@ -0,0 +1,296 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import net.minder.util.RotatingLogWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// An access log for every context of a SimpleRestServer, written in the common log format plus a duration.
+// Request threads claim a preallocated record in a bounded lock-free ring and fill it in, nothing is formatted,
+// allocated or written on the request path. A single writer thread drains the ring in batches to a file that
+// rotates by size and by time. When the ring is full the record is dropped and counted instead of blocking.
+public class AccessLog {
+
+  private static final DateTimeFormatter DATE =
+      DateTimeFormatter.ofPattern( "dd/MMM/yyyy:HH:mm:ss Z", Locale.US ).withZone( ZoneOffset.UTC );
+
+  private final File file;
+  private int capacity = 8192;
+  private long maxBytes = 100L * 1024 * 1024;
+  private int maxFiles = 10;
+  private long rollMillis = 0;
+  private long flushMillis = 200;
+
+  private Record[] records = null;
+  private int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private long head = 0;
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong written = new AtomicLong();
+  private final Filter filter = new AccessLogFilter();
+
+  private RotatingLogWriter writer = null;
+  private Thread thread = null;
+  private volatile boolean running = false;
+
+  public AccessLog( File file ) {
+    this.file = file;
+  }
+
+  // The number of records the ring holds, rounded up to a power of two.
+  public AccessLog capacity( int records ) {
+    this.capacity = Integer.highestOneBit( Math.max( 2, records ) - 1 ) << 1;
+    return this;
+  }
+
+  public AccessLog rotate( long maxBytes, int maxFiles ) {
+    this.maxBytes = maxBytes;
+    this.maxFiles = maxFiles;
+    return this;
+  }
+
+  // Also rotates the file on this interval, zero to rotate on size only.
+  public AccessLog rollInterval( long interval, TimeUnit unit ) {
+    this.rollMillis = unit.toMillis( interval );
+    return this;
+  }
+
+  public AccessLog flushInterval( long interval, TimeUnit unit ) {
+    this.flushMillis = Math.max( 1, unit.toMillis( interval ) );
+    return this;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public long getWritten() {
+    return written.get();
+  }
+
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  Filter getFilter() {
+    return filter;
+  }
+
+  synchronized void start() {
+    if( running ) {
+      return;
+    }
+    records = new Record[ capacity ];
+    for( int i = 0; i < capacity; i++ ) {
+      records[ i ] = new Record( i );
+    }
+    mask = capacity - 1;
+    tail.set( 0 );
+    head = 0;
+    writer = new RotatingLogWriter( file, maxBytes, maxFiles );
+    running = true;
+    thread = new Thread( this::run, "access-log-writer" );
+    thread.setDaemon( true );
+    thread.start();
+  }
+
+  // Stops the writer after it has written everything already in the ring.
+  public void close() throws InterruptedException {
+    Thread t;
+    synchronized( this ) {
+      running = false;
+      t = thread;
+      thread = null;
+    }
+    if( t != null ) {
+      LockSupport.unpark( t );
+      t.join();
+    }
+  }
+
+  // Multi-producer claim of the next slot. A slot is free for the producer at position p when its sequence is p,
+  // and ready for the writer when its sequence is p + 1.
+  void log( String method, URI uri, String protocol, InetSocketAddress remote, int status, long bytes, long millis, long nanos ) {
+    Record[] ring = records;
+    if( ring == null || !running ) {
+      dropped.incrementAndGet();
+      return;
+    }
+    while( true ) {
+      long position = tail.get();
+      Record record = ring[ (int)position & mask ];
+      long sequence = record.sequence;
+      if( sequence == position ) {
+        if( tail.compareAndSet( position, position + 1 ) ) {
+          record.method = method;
+          record.uri = uri;
+          record.protocol = protocol;
+          record.remote = remote;
+          record.status = status;
+          record.bytes = bytes;
+          record.time = millis;
+          record.nanos = nanos;
+          record.sequence = position + 1;
+          return;
+        }
+      } else if( sequence < position ) {
+        dropped.incrementAndGet();
+        return;
+      }
+    }
+  }
+
+  private void run() {
+    StringBuilder line = new StringBuilder( 256 );
+    StringBuilder batch = new StringBuilder( 64 * 1024 );
+    long nextRoll = rollMillis > 0 ? System.currentTimeMillis() + rollMillis : Long.MAX_VALUE;
+    boolean dirty = false;
+    while( true ) {
+      boolean stopping = !running;
+      int count = drain( batch, line );
+      try {
+        if( count > 0 ) {
+          byte[] bytes = batch.toString().getBytes( StandardCharsets.UTF_8 );
+          writer.write( bytes, 0, bytes.length );
+          written.addAndGet( count );
+          batch.setLength( 0 );
+          dirty = true;
+        }
+        long now = System.currentTimeMillis();
+        if( now >= nextRoll ) {
+          writer.roll();
+          nextRoll = now + rollMillis;
+        }
+        if( count == 0 && dirty ) {
+          writer.flush();
+          dirty = false;
+        }
+        if( stopping && count == 0 ) {
+          writer.close();
+          return;
+        }
+      } catch( IOException e ) {
+        // The batch is only still there when the write itself failed.
+        if( batch.length() > 0 ) {
+          dropped.addAndGet( count );
+          batch.setLength( 0 );
+        }
+        if( stopping && count == 0 ) {
+          return;
+        }
+      }
+      if( count == 0 ) {
+        LockSupport.parkNanos( TimeUnit.MILLISECONDS.toNanos( flushMillis ) );
+      }
+    }
+  }
+
+  private int drain( StringBuilder batch, StringBuilder line ) {
+    int count = 0;
+    while( batch.length() < 60 * 1024 ) {
+      Record record = records[ (int)head & mask ];
+      if( record.sequence != head + 1 ) {
+        break;
+      }
+      format( record, line );
+      batch.append( line );
+      record.method = null;
+      record.uri = null;
+      record.protocol = null;
+      record.remote = null;
+      record.sequence = head + records.length;
+      head++;
+      count++;
+    }
+    return count;
+  }
+
+  private static void format( Record record, StringBuilder line ) {
+    line.setLength( 0 );
+    line.append( record.remote == null ? "-" : record.remote.getAddress().getHostAddress() );
+    line.append( " - - [" );
+    DATE.formatTo( Instant.ofEpochMilli( record.time ), line );
+    line.append( "] \"" ).append( record.method ).append( ' ' ).append( record.uri.getRawPath() );
+    if( record.uri.getRawQuery() != null ) {
+      line.append( '?' ).append( record.uri.getRawQuery() );
+    }
+    line.append( ' ' ).append( record.protocol ).append( "\" " ).append( record.status ).append( ' ' );
+    if( record.bytes > 0 ) {
+      line.append( record.bytes );
+    } else {
+      line.append( '-' );
+    }
+    line.append( ' ' ).append( TimeUnit.NANOSECONDS.toMicros( record.nanos ) ).append( '\n' );
+  }
+
+  private static final class Record {
+
+    private volatile long sequence;
+    private String method;
+    private URI uri;
+    private String protocol;
+    private InetSocketAddress remote;
+    private int status;
+    private long bytes;
+    private long time;
+    private long nanos;
+
+    private Record( long sequence ) {
+      this.sequence = sequence;
+    }
+
+  }
+
+  private class AccessLogFilter extends Filter {
+
+    @Override
+    public void doFilter( HttpExchange exchange, Chain chain ) throws IOException {
+      long time = System.currentTimeMillis();
+      long start = System.nanoTime();
+      CountingOutputStream out = new CountingOutputStream( exchange.getResponseBody() );
+      exchange.setStreams( null, out );
+      try {
+        chain.doFilter( exchange );
+      } finally {
+        log( exchange.getRequestMethod(), exchange.getRequestURI(), exchange.getProtocol(), exchange.getRemoteAddress(),
+            exchange.getResponseCode(), out.getCount(), time, System.nanoTime() - start );
+      }
+    }
+
+    @Override
+    public String description() {
+      return "Access log " + file;
+    }
+
+  }
+
+}
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.annotation.Priority;
+import javax.ws.rs.ForbiddenException;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import java.net.InetSocketAddress;
+
+// Guards @Admin resources. Without a role only loopback clients are let through. With a role the request's
+// SecurityContext must have it, as set by the application's own authentication filter, wherever it comes from.
+@Admin
+@Priority( Priorities.AUTHORIZATION )
+class AdminFilter implements ContainerRequestFilter {
+
+  private volatile String role = null;
+
+  void role( String role ) {
+    this.role = role;
+  }
+
+  @Override
+  public void filter( ContainerRequestContext request ) {
+    String role = this.role;
+    boolean allowed;
+    if( role != null ) {
+      allowed = request.getSecurityContext() != null && request.getSecurityContext().isUserInRole( role );
+    } else {
+      InetSocketAddress client = ClientAddressFilter.current();
+      allowed = client != null && client.getAddress() != null && client.getAddress().isLoopbackAddress();
+    }
+    if( !allowed ) {
+      throw new ForbiddenException();
+    }
+  }
+
+}
@@ -46,6 +46,11 @@ public class AssertionErrorExceptionMapper implements ExceptionMapper<AssertionE
 
   @Override
   public Response toResponse( AssertionError e ) {
+    FlightAssertionEvent event = new FlightAssertionEvent();
+    if( event.shouldCommit() ) {
+      event.message = e.getMessage();
+      event.commit();
+    }
     javax.ws.rs.core.Response.ResponseBuilder builder = javax.ws.rs.core.Response.serverError();
     return builder.status( ASSERTION_ERROR_STATUS ).type( MediaType.TEXT_PLAIN_TYPE ).entity( formatException( e ) ).build();
   }
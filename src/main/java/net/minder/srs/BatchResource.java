@@ -0,0 +1,249 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs a list of sub-requests through the Jersey application in-process and returns all of their responses
+// in one body, in order. GET, HEAD and OPTIONS parts run in parallel up to the batch's parallelism. Any other
+// method is a barrier: it waits for the parts before it and the parts after it wait for it.
+// JSON response bodies are embedded as JSON and other bodies as text. Registered by SimpleRestServer.batch().
+// Parts of all batches share one pool of parallelism threads, and a part can't be a batch itself.
+@Path( "/batch" )
+public class BatchResource {
+
+  public static class Part {
+    public Part() {}
+    public String id;
+    public String method = "GET";
+    public String path;
+    public Map<String,String> headers = new LinkedHashMap<>();
+    public JsonNode body;
+  }
+
+  public static class Result {
+    public Result() {}
+    public String id;
+    public int status;
+    public Map<String,String> headers = new LinkedHashMap<>();
+    public JsonNode body;
+  }
+
+  // Set on sub-requests, so a part that still reaches this resource is refused.
+  static final String NESTED = BatchResource.class.getName() + ".nested";
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private final ThreadGroup group;
+  private final int parallelism;
+  private final int maxParts;
+  private ThreadPoolExecutor threads = null;
+
+  public BatchResource( ThreadGroup group, int parallelism, int maxParts ) {
+    this.group = group;
+    this.parallelism = Math.max( 1, parallelism );
+    this.maxParts = maxParts;
+  }
+
+  @POST
+  @Consumes( "application/json" )
+  @Produces( "application/json" )
+  public List<Result> batch( @Context ApplicationHandler application, @Context ContainerRequest outer, List<Part> parts )
+      throws InterruptedException {
+    if( outer.getProperty( NESTED ) != null ) {
+      throw new WebApplicationException( "A batch can't contain another batch.", Response.Status.BAD_REQUEST );
+    }
+    if( parts == null || parts.size() > maxParts ) {
+      throw new WebApplicationException( "A batch is a list of at most " + maxParts + " parts.", Response.Status.BAD_REQUEST );
+    }
+    ExecutorService threads = getThreads();
+    Semaphore permits = new Semaphore( parallelism );
+    List<Future<Result>> results = new ArrayList<>( parts.size() );
+    for( Part part: parts ) {
+      // Barriers run on the batch threads too, so no part sees the container thread's client address.
+      permits.acquire( isSafe( part.method ) ? 1 : parallelism );
+      results.add( threads.submit( new Call( application, outer, part, permits ) ) );
+    }
+    List<Result> out = new ArrayList<>( results.size() );
+    for( Future<Result> result: results ) {
+      try {
+        out.add( result.get() );
+      } catch( ExecutionException e ) {
+        throw new WebApplicationException( e.getCause() );
+      }
+    }
+    return out;
+  }
+
+  synchronized void shutdown() {
+    if( threads != null ) {
+      threads.shutdownNow();
+      threads = null;
+    }
+  }
+
+  // Parts never submit further parts, so concurrent batches can safely queue for the shared threads.
+  private synchronized ExecutorService getThreads() {
+    if( threads == null ) {
+      threads = new ThreadPoolExecutor( parallelism, parallelism, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+        @Override
+        public Thread newThread( Runnable runnable ) {
+          Thread thread = new Thread( group, runnable, "batch-" + count.incrementAndGet() );
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+      threads.allowCoreThreadTimeOut( true );
+    }
+    return threads;
+  }
+
+  private static boolean isSafe( String method ) {
+    return "GET".equalsIgnoreCase( method ) || "HEAD".equalsIgnoreCase( method ) || "OPTIONS".equalsIgnoreCase( method );
+  }
+
+  private static boolean isJson( MediaType type ) {
+    return type != null && ( type.getSubtype().equals( "json" ) || type.getSubtype().endsWith( "+json" ) );
+  }
+
+  // Runs one part and returns its permits, all of them for a barrier, once it is done.
+  private class Call implements Callable<Result> {
+
+    private final ApplicationHandler application;
+    private final ContainerRequest outer;
+    private final Part part;
+    private final Semaphore permits;
+
+    private Call( ApplicationHandler application, ContainerRequest outer, Part part, Semaphore permits ) {
+      this.application = application;
+      this.outer = outer;
+      this.part = part;
+      this.permits = permits;
+    }
+
+    @Override
+    public Result call() {
+      try {
+        return invoke();
+      } finally {
+        permits.release( isSafe( part.method ) ? 1 : parallelism );
+      }
+    }
+
+    private Result invoke() {
+      Result result = new Result();
+      result.id = part.id;
+      String path = part.path == null ? "" : part.path.replaceFirst( "^/+", "" );
+      if( path.isEmpty() ) {
+        return invalid( result );
+      }
+      URI base = outer.getBaseUri();
+      URI uri;
+      try {
+        uri = URI.create( base + path ).normalize();
+      } catch( IllegalArgumentException e ) {
+        return invalid( result );
+      }
+      try {
+        ContainerRequest request = new ContainerRequest( base, uri,
+            part.method.toUpperCase(), outer.getSecurityContext(), new MapPropertiesDelegate() );
+        // Checked on the decoded, normalized path, so an escaped or dotted spelling of /batch is refused too.
+        String decoded = request.getPath( true ).replaceFirst( "^/+", "" );
+        if( decoded.equals( "batch" ) || decoded.startsWith( "batch/" ) ) {
+          return invalid( result );
+        }
+        request.setProperty( NESTED, Boolean.TRUE );
+        for( Map.Entry<String,String> header: part.headers.entrySet() ) {
+          request.header( header.getKey(), header.getValue() );
+        }
+        if( part.body != null ) {
+          byte[] body = part.body.isTextual() ? part.body.asText().getBytes( StandardCharsets.UTF_8 ) : mapper.writeValueAsBytes( part.body );
+          if( request.getHeaderString( "Content-Type" ) == null ) {
+            request.header( "Content-Type", part.body.isTextual() ? "text/plain" : "application/json" );
+          }
+          request.setEntityStream( new ByteArrayInputStream( body ) );
+        }
+        RequestDeadline deadline = (RequestDeadline)outer.getProperty( RequestDeadline.PROPERTY );
+        if( deadline != null && request.getHeaderString( RequestDeadline.HEADER ) == null ) {
+          request.header( RequestDeadline.HEADER, Long.toString( deadline.getRemaining( TimeUnit.MILLISECONDS ) ) );
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ContainerResponse response = application.apply( request, out ).get();
+        result.status = response.getStatus();
+        for( Map.Entry<String,List<String>> header: response.getStringHeaders().entrySet() ) {
+          result.headers.put( header.getKey(), header.getValue().isEmpty() ? "" : header.getValue().get( 0 ) );
+        }
+        if( out.size() > 0 ) {
+          result.body = isJson( response.getMediaType() ) ? mapper.readTree( out.toByteArray() )
+              : TextNode.valueOf( new String( out.toByteArray(), StandardCharsets.UTF_8 ) );
+        }
+      } catch( IOException | ExecutionException | RuntimeException e ) {
+        result.status = Response.Status.INTERNAL_SERVER_ERROR.getStatusCode();
+        result.body = TextNode.valueOf( Response.Status.INTERNAL_SERVER_ERROR.getReasonPhrase() );
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        result.status = Response.Status.SERVICE_UNAVAILABLE.getStatusCode();
+      }
+      return result;
+    }
+
+    private Result invalid( Result result ) {
+      result.status = Response.Status.BAD_REQUEST.getStatusCode();
+      result.body = TextNode.valueOf( "Invalid batch part path: " + part.path );
+      return result;
+    }
+
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.fasterxml.jackson.jaxrs.cbor.JacksonCBORProvider;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
+
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+
+// Lets every resource method that produces or consumes JSON also negotiate Smile and CBOR.
+public class BinaryJsonFeature implements Feature {
+
+  @Override
+  public boolean configure( FeatureContext context ) {
+    context.register( JacksonSmileProvider.class );
+    context.register( JacksonCBORProvider.class );
+    context.register( BinaryJsonModelProcessor.class );
+    return true;
+  }
+
+}
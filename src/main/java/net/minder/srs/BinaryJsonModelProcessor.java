@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.fasterxml.jackson.jaxrs.cbor.CBORMediaTypes;
+import com.fasterxml.jackson.jaxrs.smile.SmileMediaTypes;
+import org.glassfish.jersey.server.model.ModelProcessor;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryJsonModelProcessor implements ModelProcessor {
+
+  static final MediaType SMILE = SmileMediaTypes.APPLICATION_JACKSON_SMILE_TYPE;
+  static final MediaType CBOR = MediaType.valueOf( CBORMediaTypes.APPLICATION_JACKSON_CBOR );
+
+  @Override
+  public ResourceModel processResourceModel( ResourceModel model, Configuration configuration ) {
+    return process( model );
+  }
+
+  @Override
+  public ResourceModel processSubResource( ResourceModel model, Configuration configuration ) {
+    return process( model );
+  }
+
+  private static ResourceModel process( ResourceModel model ) {
+    ResourceModel.Builder builder = new ResourceModel.Builder( false );
+    for( Resource resource: model.getResources() ) {
+      builder.addResource( process( resource ) );
+    }
+    return builder.build();
+  }
+
+  private static Resource process( Resource resource ) {
+    Resource.Builder builder = Resource.builder( resource );
+    for( ResourceMethod method: resource.getResourceMethods() ) {
+      List<MediaType> produces = extend( method.getProducedTypes() );
+      List<MediaType> consumes = extend( method.getConsumedTypes() );
+      if( produces != null || consumes != null ) {
+        ResourceMethod.Builder update = builder.updateMethod( method );
+        if( produces != null ) {
+          update.produces( produces );
+        }
+        if( consumes != null ) {
+          update.consumes( consumes );
+        }
+        update.build();
+      }
+    }
+    for( Resource child: resource.getChildResources() ) {
+      builder.replaceChildResource( child, process( child ) );
+    }
+    return builder.build();
+  }
+
+  // Returns the binary types to add to a method's media types, or null if it has no JSON type.
+  private static List<MediaType> extend( List<MediaType> types ) {
+    boolean json = false;
+    boolean smile = false;
+    boolean cbor = false;
+    for( MediaType type: types ) {
+      json |= isJson( type );
+      smile |= type.isCompatible( SMILE ) && !type.isWildcardType();
+      cbor |= type.isCompatible( CBOR ) && !type.isWildcardType();
+    }
+    if( !json || ( smile && cbor ) ) {
+      return null;
+    }
+    List<MediaType> extra = new ArrayList<>( 2 );
+    if( !smile ) {
+      extra.add( SMILE );
+    }
+    if( !cbor ) {
+      extra.add( CBOR );
+    }
+    return extra;
+  }
+
+  private static boolean isJson( MediaType type ) {
+    return "application".equalsIgnoreCase( type.getType() )
+        && ( "json".equalsIgnoreCase( type.getSubtype() ) || type.getSubtype().toLowerCase().endsWith( "+json" ) );
+  }
+
+}
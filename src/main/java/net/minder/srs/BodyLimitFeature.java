@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+// Binds a BodyLimitFilter to each resource method with a limit. A spilled body is released when its request
+// finishes, which also covers requests whose resource fails with an unmapped exception and skips the
+// response filters. Applications that never spill don't get a listener on their requests.
+public class BodyLimitFeature implements Feature {
+
+  private volatile long defaultMax = -1;
+  private volatile long defaultSpill = -1;
+
+  public void defaults( long max, long spill ) {
+    defaultMax = max;
+    defaultSpill = spill;
+  }
+
+  @Override
+  public boolean configure( FeatureContext context ) {
+    // Listeners can only be registered up front, before the resource methods are known.
+    final SpillListener listener = new SpillListener();
+    context.register( new DynamicFeature() {
+      @Override
+      public void configure( ResourceInfo resourceInfo, FeatureContext context ) {
+        Method method = resourceInfo.getResourceMethod();
+        BodyLimit limit = method.getAnnotation( BodyLimit.class );
+        if( limit == null ) {
+          limit = resourceInfo.getResourceClass().getAnnotation( BodyLimit.class );
+        }
+        long max = defaultMax;
+        long spill = defaultSpill;
+        if( limit != null ) {
+          max = limit.max() < 0 ? max : limit.max();
+          spill = limit.spill() < 0 ? spill : limit.spill();
+        }
+        if( max >= 0 || spill >= 0 ) {
+          context.register( new BodyLimitFilter( max, spill ) );
+        }
+        if( spill >= 0 ) {
+          listener.bound = true;
+        }
+      }
+    } );
+    context.register( listener );
+    return true;
+  }
+
+  private static class SpillListener implements ApplicationEventListener, RequestEventListener {
+
+    private volatile boolean bound = false;
+
+    @Override
+    public void onEvent( ApplicationEvent event ) {
+    }
+
+    @Override
+    public RequestEventListener onRequest( RequestEvent event ) {
+      return bound ? this : null;
+    }
+
+    @Override
+    public void onEvent( RequestEvent event ) {
+      if( event.getType() == RequestEvent.Type.FINISHED ) {
+        Object buffer = event.getContainerRequest().getProperty( BodyLimitFilter.SPILL_BUFFER );
+        if( buffer != null ) {
+          event.getContainerRequest().removeProperty( BodyLimitFilter.SPILL_BUFFER );
+          try {
+            ( (SpillBuffer)buffer ).close();
+          } catch( IOException e ) {
+            // Nothing more can be done for a finished request.
+          }
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+
+// Bounds a request body, either streaming it through a LimitedInputStream or reading it into a SpillBuffer.
+// A SpillBuffer is released by BodyLimitFeature when the request finishes.
+public class BodyLimitFilter implements ContainerRequestFilter {
+
+  static final String SPILL_BUFFER = BodyLimitFilter.class.getName() + ".buffer";
+
+  private final long max;
+  private final long spill;
+
+  public BodyLimitFilter( long max, long spill ) {
+    this.max = max;
+    this.spill = spill;
+  }
+
+  @Override
+  public void filter( ContainerRequestContext request ) throws IOException {
+    if( !request.hasEntity() ) {
+      return;
+    }
+    if( max >= 0 && request.getLength() > max ) {
+      throw tooLarge( max );
+    }
+    if( spill >= 0 ) {
+      SpillBuffer buffer = SpillBuffer.read( request.getEntityStream(), max, spill );
+      request.setProperty( SPILL_BUFFER, buffer );
+      request.setEntityStream( buffer.getInputStream() );
+    } else {
+      request.setEntityStream( new LimitedInputStream( request.getEntityStream(), max ) );
+    }
+  }
+
+  static WebApplicationException tooLarge( long max ) {
+    return new WebApplicationException( Response
+        .status( Response.Status.REQUEST_ENTITY_TOO_LARGE )
+        .type( MediaType.TEXT_PLAIN_TYPE )
+        .entity( "Request body exceeds " + max + " bytes." )
+        .build() );
+  }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A named, bounded executor that resource methods assigned to it run on.
+// At most threads methods run at once and at most queue more wait, further requests are rejected.
+public class BulkheadPool {
+
+  private final String name;
+  private final int threads;
+  private final int queue;
+  private final ThreadPoolExecutor executor;
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  BulkheadPool( final ThreadGroup group, final String name, int threads, int queue ) {
+    this.name = name;
+    this.threads = Math.max( 1, threads );
+    this.queue = Math.max( 0, queue );
+    BlockingQueue<Runnable> work = this.queue == 0 ? new SynchronousQueue<Runnable>() : new ArrayBlockingQueue<Runnable>( this.queue );
+    executor = new ThreadPoolExecutor( this.threads, this.threads, 60, TimeUnit.SECONDS, work, new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+      @Override
+      public Thread newThread( Runnable runnable ) {
+        Thread thread = new Thread( group, runnable, "bulkhead-" + name + "-" + count.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+    executor.allowCoreThreadTimeOut( true );
+  }
+
+  // Returns null when the bulkhead is full.
+  <T> Future<T> submit( Callable<T> task ) {
+    try {
+      Future<T> future = executor.submit( task );
+      submitted.incrementAndGet();
+      return future;
+    } catch( RejectedExecutionException e ) {
+      rejected.incrementAndGet();
+      return null;
+    }
+  }
+
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public int getQueueLimit() {
+    return queue;
+  }
+
+  public int getActive() {
+    return executor.getActiveCount();
+  }
+
+  public int getQueued() {
+    return executor.getQueue().size();
+  }
+
+  public long getSubmitted() {
+    return submitted.get();
+  }
+
+  public long getCompleted() {
+    return executor.getCompletedTaskCount();
+  }
+
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format( "%s threads=%d queue=%d active=%d queued=%d completed=%d rejected=%d",
+        name, threads, queue, getActive(), getQueued(), getCompleted(), getRejected() );
+  }
+
+}
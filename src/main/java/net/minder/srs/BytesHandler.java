@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Answers GET and HEAD with a fixed, pre-encoded response, for health checks and other trivial endpoints
+// that should not pay for Jersey matching, filters and message body writers.
+public class BytesHandler implements HttpHandler {
+
+  private final int status;
+  private final String contentType;
+  private final byte[] body;
+  private long maxRequestBytes = 64 * 1024;
+
+  public BytesHandler( int status, String contentType, byte[] body ) {
+    this.status = status;
+    this.contentType = contentType;
+    this.body = body.clone();
+  }
+
+  public static BytesHandler text( String text ) {
+    return new BytesHandler( 200, "text/plain; charset=UTF-8", text.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  public static BytesHandler json( String json ) {
+    return new BytesHandler( 200, "application/json", json.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  // The most request body that is read and discarded before the request is refused with 413.
+  public BytesHandler bodyLimit( long maxBytes ) {
+    this.maxRequestBytes = maxBytes;
+    return this;
+  }
+
+  @Override
+  public void handle( HttpExchange exchange ) throws IOException {
+    try {
+      String method = exchange.getRequestMethod();
+      boolean head = "HEAD".equals( method );
+      if( !head && !"GET".equals( method ) ) {
+        exchange.getResponseHeaders().set( "Allow", "GET, HEAD" );
+        exchange.sendResponseHeaders( 405, -1 );
+        return;
+      }
+      // Any unread request body would otherwise stop the connection from being reused.
+      if( !discard( exchange ) ) {
+        exchange.getResponseHeaders().set( "Connection", "close" );
+        exchange.sendResponseHeaders( 413, -1 );
+        return;
+      }
+      exchange.getResponseHeaders().set( "Content-Type", contentType );
+      if( head || body.length == 0 ) {
+        if( head ) {
+          exchange.getResponseHeaders().set( "Content-Length", Integer.toString( body.length ) );
+        }
+        exchange.sendResponseHeaders( status, -1 );
+        return;
+      }
+      exchange.sendResponseHeaders( status, body.length );
+      try( OutputStream out = exchange.getResponseBody() ) {
+        out.write( body );
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private boolean discard( HttpExchange exchange ) throws IOException {
+    String length = exchange.getRequestHeaders().getFirst( "Content-Length" );
+    if( length != null ) {
+      try {
+        if( Long.parseLong( length.trim() ) > maxRequestBytes ) {
+          return false;
+        }
+      } catch( NumberFormatException e ) {
+        return false;
+      }
+    }
+    byte[] buffer = new byte[ 4096 ];
+    long total = 0;
+    try( InputStream in = exchange.getRequestBody() ) {
+      int count;
+      while( ( count = in.read( buffer ) ) >= 0 ) {
+        total += count;
+        if( total > maxRequestBytes ) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+// Makes the client address of the exchange being handled available to Jersey filters on the same thread,
+// as the jdk-http container doesn't pass it on. Requests dispatched in-process, such as batch parts, have none.
+class ClientAddressFilter extends Filter {
+
+  private static final ThreadLocal<InetSocketAddress> current = new ThreadLocal<>();
+
+  static InetSocketAddress current() {
+    return current.get();
+  }
+
+  @Override
+  public void doFilter( HttpExchange exchange, Chain chain ) throws IOException {
+    current.set( exchange.getRemoteAddress() );
+    try {
+      chain.doFilter( exchange );
+    } finally {
+      current.remove();
+    }
+  }
+
+  @Override
+  public String description() {
+    return "Client address";
+  }
+
+}
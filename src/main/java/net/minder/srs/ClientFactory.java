@@ -0,0 +1,287 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jaxrs.cbor.JacksonCBORProvider;
+import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.UriBuilder;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Builds a Jersey client once and hands out that same thread-safe instance, instead of a new client per call.
+// Requests go through a pooled Apache connector, so connections are kept alive and reused up to a per-route limit,
+// and the Jackson JSON, Smile and CBOR providers are registered up front with one shared ObjectMapper.
+// Responses must be read or closed to return their connection to the pool.
+public class ClientFactory {
+
+  private static ClientFactory shared = null;
+  private static Client sharedClient = null;
+
+  private int maxTotal = 200;
+  private int maxPerRoute = 20;
+  private Map<HttpHost,Integer> routes = new LinkedHashMap<>();
+  private int connectTimeout = 10000;
+  private int readTimeout = 0;
+  private int validateAfterInactivity = 2000;
+  private ObjectMapper mapper = new ObjectMapper();
+  private List<Object> providers = new ArrayList<>();
+
+  private Client client = null;
+  private PoolingHttpClientConnectionManager connections = null;
+
+  // A client with the default settings shared by the whole JVM. Closing it has no effect and registering
+  // providers or setting properties on it fails, so no caller can change it for the others. Callers that need
+  // their own providers or properties use their own ClientFactory, or configure the WebTarget they get.
+  public static synchronized Client shared() {
+    if( shared == null ) {
+      shared = new ClientFactory();
+      sharedClient = new SharedClient( shared.getClient() );
+    }
+    return sharedClient;
+  }
+
+  public synchronized ClientFactory maxConnections( int maxTotal ) {
+    this.maxTotal = Math.max( 1, maxTotal );
+    return this;
+  }
+
+  public synchronized ClientFactory maxPerRoute( int maxPerRoute ) {
+    this.maxPerRoute = Math.max( 1, maxPerRoute );
+    return this;
+  }
+
+  // The connection limit for one scheme, host and port, overriding maxPerRoute().
+  public synchronized ClientFactory maxPerRoute( URI uri, int max ) {
+    routes.put( toHost( uri ), Math.max( 1, max ) );
+    return this;
+  }
+
+  public synchronized ClientFactory connectTimeout( long timeout, TimeUnit unit ) {
+    connectTimeout = (int)unit.toMillis( timeout );
+    return this;
+  }
+
+  // Zero for no limit.
+  public synchronized ClientFactory readTimeout( long timeout, TimeUnit unit ) {
+    readTimeout = (int)unit.toMillis( timeout );
+    return this;
+  }
+
+  // Pooled connections idle for longer are checked before reuse, as the server may have closed them.
+  public synchronized ClientFactory validateAfterInactivity( long timeout, TimeUnit unit ) {
+    validateAfterInactivity = (int)unit.toMillis( timeout );
+    return this;
+  }
+
+  public synchronized ClientFactory mapper( ObjectMapper mapper ) {
+    this.mapper = mapper;
+    return this;
+  }
+
+  // Additional provider classes or instances, for example DeadlinePropagationFilter.
+  public synchronized ClientFactory register( Object... providers ) {
+    for( Object provider: providers ) {
+      this.providers.add( provider );
+    }
+    return this;
+  }
+
+  // Builds the client on first use. Settings changed afterwards have no effect.
+  public synchronized Client getClient() {
+    if( client == null ) {
+      connections = new PoolingHttpClientConnectionManager();
+      connections.setMaxTotal( maxTotal );
+      connections.setDefaultMaxPerRoute( maxPerRoute );
+      for( Map.Entry<HttpHost,Integer> route: routes.entrySet() ) {
+        connections.setMaxPerRoute( new HttpRoute( route.getKey() ), route.getValue() );
+      }
+      connections.setValidateAfterInactivity( validateAfterInactivity );
+      ClientConfig config = new ClientConfig()
+          .connectorProvider( new ApacheConnectorProvider() )
+          .property( ApacheClientProperties.CONNECTION_MANAGER, connections )
+          .property( ClientProperties.CONNECT_TIMEOUT, connectTimeout )
+          .property( ClientProperties.READ_TIMEOUT, readTimeout )
+          .register( new JacksonJsonProvider( mapper ) )
+          .register( JacksonSmileProvider.class )
+          .register( JacksonCBORProvider.class );
+      for( Object provider: providers ) {
+        if( provider instanceof Class ) {
+          config.register( (Class<?>)provider );
+        } else {
+          config.register( provider );
+        }
+      }
+      client = ClientBuilder.newClient( config );
+    }
+    return client;
+  }
+
+  // Leased, available, pending and max connections across all routes, or null before the client is built.
+  public synchronized PoolStats getStats() {
+    return connections == null ? null : connections.getTotalStats();
+  }
+
+  public synchronized PoolStats getStats( URI uri ) {
+    return connections == null ? null : connections.getStats( new HttpRoute( toHost( uri ) ) );
+  }
+
+  // Closes the client and its connections. The next getClient() builds a new one.
+  public synchronized void close() {
+    if( client != null ) {
+      client.close();
+      client = null;
+      connections = null;
+    }
+  }
+
+  private static class SharedClient implements Client {
+
+    private final Client client;
+
+    private SharedClient( Client client ) {
+      this.client = client;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public WebTarget target( String uri ) {
+      return client.target( uri );
+    }
+
+    @Override
+    public WebTarget target( URI uri ) {
+      return client.target( uri );
+    }
+
+    @Override
+    public WebTarget target( UriBuilder uriBuilder ) {
+      return client.target( uriBuilder );
+    }
+
+    @Override
+    public WebTarget target( Link link ) {
+      return client.target( link );
+    }
+
+    @Override
+    public Invocation.Builder invocation( Link link ) {
+      return client.invocation( link );
+    }
+
+    @Override
+    public SSLContext getSslContext() {
+      return client.getSslContext();
+    }
+
+    @Override
+    public HostnameVerifier getHostnameVerifier() {
+      return client.getHostnameVerifier();
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+      return client.getConfiguration();
+    }
+
+    @Override
+    public Client property( String name, Object value ) {
+      throw unconfigurable();
+    }
+
+    @Override
+    public Client register( Class<?> componentClass ) {
+      throw unconfigurable();
+    }
+
+    @Override
+    public Client register( Class<?> componentClass, int priority ) {
+      throw unconfigurable();
+    }
+
+    @Override
+    public Client register( Class<?> componentClass, Class<?>... contracts ) {
+      throw unconfigurable();
+    }
+
+    @Override
+    public Client register( Class<?> componentClass, Map<Class<?>,Integer> contracts ) {
+      throw unconfigurable();
+    }
+
+    @Override
+    public Client register( Object component ) {
+      throw unconfigurable();
+    }
+
+    @Override
+    public Client register( Object component, int priority ) {
+      throw unconfigurable();
+    }
+
+    @Override
+    public Client register( Object component, Class<?>... contracts ) {
+      throw unconfigurable();
+    }
+
+    @Override
+    public Client register( Object component, Map<Class<?>,Integer> contracts ) {
+      throw unconfigurable();
+    }
+
+    private static IllegalStateException unconfigurable() {
+      return new IllegalStateException( "The shared client can't be configured, use a ClientFactory of your own." );
+    }
+
+  }
+
+  private static HttpHost toHost( URI uri ) {
+    String scheme = uri.getScheme() == null ? "http" : uri.getScheme();
+    int port = uri.getPort();
+    if( port == -1 ) {
+      port = "https".equalsIgnoreCase( scheme ) ? 443 : 80;
+    }
+    return new HttpHost( uri.getHost(), port, scheme );
+  }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+class CountingInputStream extends FilterInputStream {
+
+  private long count = 0;
+
+  CountingInputStream( InputStream in ) {
+    super( in );
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if( b >= 0 ) {
+      count++;
+    }
+    return b;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    int n = super.read( b, off, len );
+    if( n > 0 ) {
+      count += n;
+    }
+    return n;
+  }
+
+  @Override
+  public long skip( long n ) throws IOException {
+    long s = super.skip( n );
+    if( s > 0 ) {
+      count += s;
+    }
+    return s;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+// Works out the deadline of each request from the resource's @Deadline, the server default and the
+// request header, and stores it on the request for RequestDeadline injection.
+// It is also handed to DispatchFeature through a thread local, as the filter and the resource method
+// invocation run on the same thread, which saves a request lookup on every invocation.
+@Priority( Priorities.AUTHENTICATION - 100 )
+class DeadlineFilter implements ContainerRequestFilter {
+
+  private static final ThreadLocal<RequestDeadline> pending = new ThreadLocal<>();
+
+  private final DispatchFeature dispatch;
+
+  @Context
+  private ResourceInfo resourceInfo;
+
+  DeadlineFilter( DispatchFeature dispatch ) {
+    this.dispatch = dispatch;
+  }
+
+  // The deadline set by the filter for the invocation about to run on this thread, NONE if there is none.
+  static RequestDeadline take() {
+    RequestDeadline deadline = pending.get();
+    if( deadline == null ) {
+      return RequestDeadline.NONE;
+    }
+    pending.remove();
+    return deadline;
+  }
+
+  @Override
+  public void filter( ContainerRequestContext request ) {
+    pending.remove();
+    long configured = configured();
+    long timeout = configured;
+    String header = request.getHeaderString( RequestDeadline.HEADER );
+    if( header != null ) {
+      try {
+        long requested = Long.parseLong( header.trim() );
+        if( requested >= 0 && ( timeout < 0 || requested < timeout ) ) {
+          timeout = requested;
+        }
+      } catch( NumberFormatException e ) {
+        // Ignore a malformed budget.
+      }
+    }
+    if( timeout >= 0 ) {
+      // Only a server or resource deadline gets the request handed to another thread and interrupted.
+      RequestDeadline deadline = configured >= 0
+          ? RequestDeadline.after( timeout, TimeUnit.MILLISECONDS )
+          : RequestDeadline.cooperative( timeout, TimeUnit.MILLISECONDS );
+      request.setProperty( RequestDeadline.PROPERTY, deadline );
+      deadline.check();
+      pending.set( deadline );
+    }
+  }
+
+  private long configured() {
+    Method method = resourceInfo.getResourceMethod();
+    Deadline deadline = method == null ? null : method.getAnnotation( Deadline.class );
+    if( deadline == null ) {
+      Class<?> type = resourceInfo.getResourceClass();
+      deadline = type == null ? null : type.getAnnotation( Deadline.class );
+    }
+    if( deadline != null ) {
+      return deadline.unit().toMillis( deadline.value() );
+    }
+    return dispatch.getDefaultDeadline();
+  }
+
+}
@@ -0,0 +1,36 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import java.util.concurrent.TimeUnit;
+
+// Forwards the remaining budget of the request being handled on this thread to downstream services.
+// Register it on JAX-RS clients used from resource methods.
+public class DeadlinePropagationFilter implements ClientRequestFilter {
+
+  @Override
+  public void filter( ClientRequestContext request ) {
+    RequestDeadline deadline = RequestDeadline.current();
+    if( deadline.hasDeadline() && !request.getHeaders().containsKey( RequestDeadline.HEADER ) ) {
+      request.getHeaders().putSingle( RequestDeadline.HEADER, Long.toString( deadline.getRemaining( TimeUnit.MILLISECONDS ) ) );
+    }
+  }
+
+}
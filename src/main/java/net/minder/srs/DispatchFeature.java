@@ -0,0 +1,354 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import org.glassfish.hk2.api.Factory;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.ServiceLocatorProvider;
+import org.glassfish.jersey.process.internal.RequestScope;
+import org.glassfish.jersey.process.internal.RequestScoped;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.model.Invocable;
+import org.glassfish.jersey.server.spi.internal.ResourceMethodInvocationHandlerProvider;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Decides where and for how long each resource method invocation runs.
+// Methods assigned to a bulkhead run on its pool and fail fast with 503 when it is full.
+// Requests with a server or resource deadline run on their bulkhead or a bounded deadline pool, and get a 504
+// as soon as the deadline passes with the invocation interrupted. When the deadline pool is full they get a 503.
+// Other requests, including those with only a client supplied deadline, are invoked inline on the container thread.
+// The jdk-http container can't suspend requests, so the container thread hands the invocation off and waits for it.
+// Handed off invocations run in the request scope of the container thread so injected request proxies keep working.
+public class DispatchFeature implements Feature {
+
+  private final ThreadGroup group;
+  private final Map<String,BulkheadPool> pools = new ConcurrentHashMap<>();
+  private final Map<Class<?>,String> assignments = new ConcurrentHashMap<>();
+  private volatile long defaultDeadline = -1;
+  private volatile int maxDeadlineThreads = 64;
+  private ThreadPoolExecutor deadlineThreads = null;
+
+  public DispatchFeature() {
+    this( Thread.currentThread().getThreadGroup() );
+  }
+
+  // Bulkhead and deadline threads are created in group, alongside the server's own threads.
+  public DispatchFeature( ThreadGroup group ) {
+    this.group = group;
+  }
+
+  public BulkheadPool define( String name, int threads, int queue ) {
+    BulkheadPool pool = new BulkheadPool( group, name, threads, queue );
+    BulkheadPool old = pools.put( name, pool );
+    if( old != null ) {
+      old.shutdown();
+    }
+    return pool;
+  }
+
+  public void assign( String name, Class<?>... resources ) {
+    for( Class<?> resource: resources ) {
+      assignments.put( resource, name );
+    }
+  }
+
+  public BulkheadPool getPool( String name ) {
+    return pools.get( name );
+  }
+
+  // The deadline for resources without @Deadline, negative for none.
+  public void deadline( long timeout, TimeUnit unit ) {
+    defaultDeadline = timeout < 0 ? -1 : unit.toMillis( timeout );
+  }
+
+  public long getDefaultDeadline() {
+    return defaultDeadline;
+  }
+
+  // The most invocations with a deadline that run at once outside of a bulkhead, including timed out ones
+  // that ignore the interrupt. Takes effect when the pool is first used.
+  public void deadlineThreads( int threads ) {
+    maxDeadlineThreads = Math.max( 1, threads );
+  }
+
+  // Fails for a @Bulkhead or an assignment that names an undefined bulkhead. Jersey only logs a failure to
+  // create the invocation handler and then runs the method inline, without the isolation it asked for.
+  public void check( ResourceConfig config ) {
+    for( Map.Entry<Class<?>,String> assignment: assignments.entrySet() ) {
+      check( assignment.getValue(), assignment.getKey() );
+    }
+    for( Class<?> type: config.getClasses() ) {
+      check( type );
+    }
+    for( Object instance: config.getInstances() ) {
+      check( instance.getClass() );
+    }
+  }
+
+  private void check( Class<?> type ) {
+    Bulkhead bulkhead = type.getAnnotation( Bulkhead.class );
+    if( bulkhead != null ) {
+      check( bulkhead.value(), type );
+    }
+    for( Method method: type.getMethods() ) {
+      bulkhead = method.getAnnotation( Bulkhead.class );
+      if( bulkhead != null ) {
+        check( bulkhead.value(), method );
+      }
+    }
+  }
+
+  private void check( String name, Object target ) {
+    if( !pools.containsKey( name ) ) {
+      throw new IllegalStateException( "Unknown bulkhead " + name + " for " + target );
+    }
+  }
+
+  public synchronized void shutdown() {
+    for( BulkheadPool pool: pools.values() ) {
+      pool.shutdown();
+    }
+    if( deadlineThreads != null ) {
+      deadlineThreads.shutdownNow();
+      deadlineThreads = null;
+    }
+  }
+
+  // Invocations that time out and ignore the interrupt keep their thread, so the pool is bounded and
+  // rejects rather than queues once every thread is busy.
+  private synchronized ExecutorService getDeadlineThreads() {
+    if( deadlineThreads == null ) {
+      deadlineThreads = new ThreadPoolExecutor( maxDeadlineThreads, maxDeadlineThreads, 60, TimeUnit.SECONDS,
+          new SynchronousQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+        @Override
+        public Thread newThread( Runnable runnable ) {
+          Thread thread = new Thread( group, runnable, "deadline-" + count.incrementAndGet() );
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+      deadlineThreads.allowCoreThreadTimeOut( true );
+    }
+    return deadlineThreads;
+  }
+
+  @Override
+  public boolean configure( FeatureContext context ) {
+    final ServiceLocator locator = ServiceLocatorProvider.getServiceLocator( context );
+    context.register( new DeadlineFilter( this ) );
+    context.register( new AbstractBinder() {
+      @Override
+      protected void configure() {
+        bindFactory( DeadlineFactory.class ).to( RequestDeadline.class ).in( RequestScoped.class );
+        bind( new Dispatcher( locator ) ).to( ResourceMethodInvocationHandlerProvider.class );
+      }
+    } );
+    return true;
+  }
+
+  private String findBulkhead( Invocable invocable ) {
+    Method method = invocable.getDefinitionMethod();
+    Bulkhead bulkhead = method.getAnnotation( Bulkhead.class );
+    if( bulkhead != null ) {
+      return bulkhead.value();
+    }
+    Class<?> type = invocable.getHandler().getHandlerClass();
+    bulkhead = type.getAnnotation( Bulkhead.class );
+    if( bulkhead != null ) {
+      return bulkhead.value();
+    }
+    return assignments.get( type );
+  }
+
+  static class DeadlineFactory implements Factory<RequestDeadline> {
+
+    @Inject
+    private Provider<ContainerRequest> request;
+
+    @Override
+    public RequestDeadline provide() {
+      Object deadline = request.get().getProperty( RequestDeadline.PROPERTY );
+      return deadline instanceof RequestDeadline ? (RequestDeadline)deadline : RequestDeadline.NONE;
+    }
+
+    @Override
+    public void dispose( RequestDeadline deadline ) {
+    }
+
+  }
+
+  private class Dispatcher implements ResourceMethodInvocationHandlerProvider {
+
+    private final ServiceLocator locator;
+
+    private Dispatcher( ServiceLocator locator ) {
+      this.locator = locator;
+    }
+
+    @Override
+    public InvocationHandler create( Invocable invocable ) {
+      String name = findBulkhead( invocable );
+      if( name != null && !pools.containsKey( name ) ) {
+        throw new IllegalArgumentException( "Unknown bulkhead " + name + " for " + invocable.getDefinitionMethod() );
+      }
+      return new Handler( name, locator.getService( RequestScope.class ) );
+    }
+
+  }
+
+  private class Handler implements InvocationHandler {
+
+    private final String name;
+    private final RequestScope scope;
+
+    private Handler( String name, RequestScope scope ) {
+      this.name = name;
+      this.scope = scope;
+    }
+
+    @Override
+    public Object invoke( Object resource, Method method, Object[] args ) throws Throwable {
+      RequestDeadline deadline = DeadlineFilter.take();
+      if( deadline.isExpired() ) {
+        throw new InvocationTargetException( RequestDeadline.exceeded() );
+      }
+      if( name == null && !deadline.isEnforced() ) {
+        if( !deadline.hasDeadline() ) {
+          return method.invoke( resource, args );
+        }
+        RequestDeadline previous = RequestDeadline.enter( deadline );
+        try {
+          return method.invoke( resource, args );
+        } finally {
+          RequestDeadline.exit( previous );
+        }
+      }
+
+      ScopedInvocation task = new ScopedInvocation( scope, deadline, resource, method, args );
+      Future<Object> future = submit( task );
+      if( future == null ) {
+        task.abandon();
+        throw new InvocationTargetException( new ServiceUnavailableException(
+            name == null ? "Deadline pool is full." : "Bulkhead " + name + " is full." ) );
+      }
+      try {
+        if( deadline.isEnforced() ) {
+          return future.get( deadline.getRemaining( TimeUnit.NANOSECONDS ), TimeUnit.NANOSECONDS );
+        } else {
+          return future.get();
+        }
+      } catch( ExecutionException e ) {
+        throw e.getCause();
+      } catch( TimeoutException e ) {
+        future.cancel( true );
+        task.abandon();
+        throw new InvocationTargetException( RequestDeadline.exceeded() );
+      } catch( InterruptedException e ) {
+        future.cancel( true );
+        task.abandon();
+        Thread.currentThread().interrupt();
+        throw e;
+      }
+    }
+
+    private Future<Object> submit( ScopedInvocation task ) {
+      if( name != null ) {
+        return pools.get( name ).submit( task );
+      }
+      try {
+        return getDeadlineThreads().submit( task );
+      } catch( RejectedExecutionException e ) {
+        return null;
+      }
+    }
+
+  }
+
+  // Holds a reference to the caller's request scope until the invocation runs, or is abandoned before it runs.
+  static class ScopedInvocation implements Callable<Object> {
+
+    private final RequestScope scope;
+    private final RequestScope.Instance instance;
+    private final RequestDeadline deadline;
+    private final Object resource;
+    private final Method method;
+    private final Object[] args;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+
+    ScopedInvocation( RequestScope scope, RequestDeadline deadline, Object resource, Method method, Object[] args ) {
+      this.scope = scope;
+      this.instance = scope.referenceCurrent();
+      this.deadline = deadline;
+      this.resource = resource;
+      this.method = method;
+      this.args = args;
+    }
+
+    @Override
+    public Object call() throws Exception {
+      if( !claimed.compareAndSet( false, true ) ) {
+        throw new IllegalStateException( "Invocation was abandoned." );
+      }
+      RequestDeadline previous = RequestDeadline.enter( deadline );
+      try {
+        return scope.runInScope( instance, new Callable<Object>() {
+          @Override
+          public Object call() throws Exception {
+            return method.invoke( resource, args );
+          }
+        } );
+      } finally {
+        RequestDeadline.exit( previous );
+        instance.release();
+      }
+    }
+
+    void abandon() {
+      if( claimed.compareAndSet( false, true ) ) {
+        instance.release();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,326 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Streams Server-Sent Events to every client that GETs the handler's path.
+// A subscriber holds no thread while it waits: its exchange is parked and a small shared writer pool drains
+// each subscriber's bounded queue only when there is something to send. An event is serialized once and the
+// same bytes are queued for every subscriber. A subscriber that falls a full queue behind is evicted, and a write
+// blocked on it is aborted so a stalled client can't hold on to a writer.
+public class EventBroadcaster implements HttpHandler {
+
+  private static final byte[] CONNECTED = ": connected\n\n".getBytes( StandardCharsets.UTF_8 );
+  private static final byte[] HEARTBEAT = ":\n\n".getBytes( StandardCharsets.UTF_8 );
+
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private final AtomicLong ids = new AtomicLong();
+  private final AtomicLong evicted = new AtomicLong();
+  private int capacity = 256;
+  private int writers = 2;
+  private long heartbeat = TimeUnit.SECONDS.toMillis( 15 );
+  private ObjectMapper mapper = new ObjectMapper();
+  private ThreadGroup group = Thread.currentThread().getThreadGroup();
+  private ScheduledThreadPoolExecutor threads = null;
+  private boolean closed = false;
+
+  // The events a subscriber may fall behind by before it is evicted.
+  public synchronized EventBroadcaster capacity( int capacity ) {
+    this.capacity = Math.max( 1, capacity );
+    return this;
+  }
+
+  public synchronized EventBroadcaster writers( int writers ) {
+    this.writers = Math.max( 1, writers );
+    return this;
+  }
+
+  // Sends a comment to every subscriber at this interval, keeping idle connections open through proxies and
+  // finding subscribers that have gone away. Defaults to 15 seconds, 0 disables it and then a subscriber that
+  // went away without closing its connection is only found by the next broadcast.
+  public synchronized EventBroadcaster heartbeat( long interval, TimeUnit unit ) {
+    this.heartbeat = unit.toMillis( interval );
+    return this;
+  }
+
+  public synchronized EventBroadcaster mapper( ObjectMapper mapper ) {
+    this.mapper = mapper;
+    return this;
+  }
+
+  synchronized void group( ThreadGroup group ) {
+    this.group = group;
+  }
+
+  public int getSubscribers() {
+    return subscribers.size();
+  }
+
+  public long getEvicted() {
+    return evicted.get();
+  }
+
+  // Sends data, a String as is or any other object as JSON, to every subscriber. Returns the event id.
+  public long broadcast( String event, Object data ) {
+    long id = ids.incrementAndGet();
+    send( encode( id, event, data ) );
+    return id;
+  }
+
+  @Override
+  public void handle( HttpExchange exchange ) throws IOException {
+    if( !"GET".equals( exchange.getRequestMethod() ) ) {
+      exchange.getResponseHeaders().set( "Allow", "GET" );
+      exchange.sendResponseHeaders( 405, -1 );
+      exchange.close();
+      return;
+    }
+    try( InputStream in = exchange.getRequestBody() ) {
+      while( in.read() >= 0 ) {
+        // Discard.
+      }
+    }
+    ScheduledThreadPoolExecutor threads = getThreads();
+    if( threads == null ) {
+      exchange.sendResponseHeaders( 503, -1 );
+      exchange.close();
+      return;
+    }
+    exchange.getResponseHeaders().set( "Content-Type", "text/event-stream; charset=UTF-8" );
+    exchange.getResponseHeaders().set( "Cache-Control", "no-cache" );
+    exchange.sendResponseHeaders( 200, 0 );
+    Subscriber subscriber = new Subscriber( exchange, threads, capacity );
+    subscribers.add( subscriber );
+    subscriber.offer( CONNECTED );
+    // Returning leaves the exchange open for the writers without holding this server thread.
+  }
+
+  // Closes every subscriber's stream and stops the writers.
+  public void close() {
+    ScheduledThreadPoolExecutor threads;
+    synchronized( this ) {
+      closed = true;
+      threads = this.threads;
+      this.threads = null;
+    }
+    for( Subscriber subscriber: subscribers ) {
+      remove( subscriber );
+    }
+    if( threads != null ) {
+      threads.shutdown();
+    }
+  }
+
+  private void send( byte[] bytes ) {
+    for( Subscriber subscriber: subscribers ) {
+      if( !subscriber.offer( bytes ) ) {
+        boolean removed = subscribers.remove( subscriber );
+        subscriber.evict();
+        if( removed ) {
+          evicted.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  private boolean remove( Subscriber subscriber ) {
+    boolean removed = subscribers.remove( subscriber );
+    subscriber.close();
+    return removed;
+  }
+
+  private synchronized ScheduledThreadPoolExecutor getThreads() {
+    if( closed ) {
+      return null;
+    }
+    if( threads == null ) {
+      threads = new ScheduledThreadPoolExecutor( writers, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+        @Override
+        public Thread newThread( Runnable runnable ) {
+          Thread thread = new Thread( group, runnable, "sse-writer-" + count.incrementAndGet() );
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+      if( heartbeat > 0 ) {
+        threads.scheduleAtFixedRate( new Runnable() {
+          @Override
+          public void run() {
+            send( HEARTBEAT );
+          }
+        }, heartbeat, heartbeat, TimeUnit.MILLISECONDS );
+      }
+    }
+    return threads;
+  }
+
+  private byte[] encode( long id, String event, Object data ) {
+    String text;
+    if( data instanceof String ) {
+      text = (String)data;
+    } else {
+      try {
+        text = mapper.writeValueAsString( data );
+      } catch( JsonProcessingException e ) {
+        throw new IllegalArgumentException( "Failed to serialize event data.", e );
+      }
+    }
+    StringBuilder out = new StringBuilder( text.length() + 32 );
+    out.append( "id: " ).append( id ).append( '\n' );
+    if( event != null ) {
+      out.append( "event: " ).append( event ).append( '\n' );
+    }
+    for( String line: text.split( "\r\n|\r|\n", -1 ) ) {
+      out.append( "data: " ).append( line ).append( '\n' );
+    }
+    return out.append( '\n' ).toString().getBytes( StandardCharsets.UTF_8 );
+  }
+
+  // Drains on a writer thread only while it has events queued. A write failure or an eviction closes the
+  // stream from the writer, so the stream is only ever touched by one thread at a time. An eviction interrupts
+  // the writer if it is blocked on this subscriber: the exchange's socket channel is interruptible, so the write
+  // fails at once and the connection is closed instead of waiting on the client.
+  private class Subscriber implements Runnable {
+
+    private final HttpExchange exchange;
+    private final OutputStream out;
+    private final ScheduledThreadPoolExecutor threads;
+    private final int capacity;
+    private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    private boolean scheduled = false;
+    private boolean closing = false;
+    private boolean aborting = false;
+    private Thread writer = null;
+
+    private Subscriber( HttpExchange exchange, ScheduledThreadPoolExecutor threads, int capacity ) {
+      this.exchange = exchange;
+      this.out = exchange.getResponseBody();
+      this.threads = threads;
+      this.capacity = capacity;
+    }
+
+    // Returns false if the subscriber is closing or already a full queue behind.
+    private synchronized boolean offer( byte[] bytes ) {
+      if( closing || queue.size() >= capacity ) {
+        return false;
+      }
+      queue.add( bytes );
+      schedule();
+      return true;
+    }
+
+    private synchronized void close() {
+      if( !closing ) {
+        closing = true;
+        queue.clear();
+        schedule();
+      }
+    }
+
+    private synchronized void evict() {
+      aborting = true;
+      close();
+      if( writer != null ) {
+        writer.interrupt();
+      }
+    }
+
+    private void schedule() {
+      if( !scheduled ) {
+        scheduled = true;
+        try {
+          threads.execute( this );
+        } catch( RuntimeException e ) {
+          // The writers are shutting down.
+          scheduled = false;
+          exchange.close();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      while( true ) {
+        byte[] bytes;
+        boolean abort;
+        synchronized( this ) {
+          bytes = closing ? null : queue.poll();
+          if( bytes == null ) {
+            scheduled = false;
+            if( !closing ) {
+              break;
+            }
+          }
+          writer = Thread.currentThread();
+          abort = aborting;
+        }
+        boolean failed = false;
+        try {
+          if( bytes == null ) {
+            if( abort ) {
+              // Any channel operation on an interrupted thread closes the channel, so closing the exchange
+              // drops the connection rather than waiting to write the end of the stream.
+              Thread.currentThread().interrupt();
+            }
+            exchange.close();
+            return;
+          }
+          out.write( bytes );
+          if( isEmpty() ) {
+            out.flush();
+          }
+        } catch( IOException e ) {
+          failed = true;
+        } finally {
+          synchronized( this ) {
+            writer = null;
+            // An eviction that came after the write completed must not reach the writer's next subscriber.
+            Thread.interrupted();
+          }
+        }
+        if( failed ) {
+          remove( this );
+        }
+      }
+    }
+
+    private synchronized boolean isEmpty() {
+      return queue.isEmpty();
+    }
+
+  }
+
+}
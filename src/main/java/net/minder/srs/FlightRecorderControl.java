@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.Duration;
+
+public class FlightRecorderControl {
+
+  // Recordings go to disk, so bound what a forgotten one can hold on to.
+  public static final Duration MAX_AGE = Duration.ofMinutes( 30 );
+  public static final long MAX_SIZE = 100L * 1024 * 1024;
+
+  private static Recording recording = null;
+
+  public static synchronized void start() throws IOException, ParseException {
+    start( "default" );
+  }
+
+  public static synchronized void start( String settings ) throws IOException, ParseException {
+    start( settings, MAX_AGE, MAX_SIZE );
+  }
+
+  public static synchronized void start( String settings, Duration maxAge, long maxSize ) throws IOException, ParseException {
+    if( recording != null ) {
+      recording.close();
+    }
+    recording = new Recording( Configuration.getConfiguration( settings ) );
+    recording.setName( "simple-rest-server" );
+    recording.setToDisk( true );
+    recording.setMaxAge( maxAge );
+    recording.setMaxSize( maxSize );
+    recording.start();
+  }
+
+  public static synchronized void stop() {
+    if( recording != null && recording.getState() == RecordingState.RUNNING ) {
+      recording.stop();
+    }
+  }
+
+  public static synchronized boolean isRecording() {
+    return recording != null && recording.getState() == RecordingState.RUNNING;
+  }
+
+  // Copies the recording to out through a temporary file, which is always removed.
+  public static void dump( OutputStream out ) throws IOException {
+    File file = File.createTempFile( "simple-rest-server-", ".jfr" );
+    try {
+      dump( file );
+      Files.copy( file.toPath(), out );
+    } finally {
+      Files.deleteIfExists( file.toPath() );
+    }
+  }
+
+  public static synchronized File dump( File file ) throws IOException {
+    if( recording == null ) {
+      throw new IllegalStateException( "No recording started." );
+    }
+    recording.dump( file.toPath() );
+    return file;
+  }
+
+  public static synchronized void close() {
+    if( recording != null ) {
+      recording.close();
+      recording = null;
+    }
+  }
+
+}
@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import java.util.concurrent.Executor;
+
+public class FlightRecorderExecutor implements Executor {
+
+  private final String name;
+  private final Executor delegate;
+
+  public FlightRecorderExecutor( String name, Executor delegate ) {
+    this.name = name;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void execute( final Runnable task ) {
+    final FlightQueueEvent event = new FlightQueueEvent();
+    if( !event.isEnabled() ) {
+      delegate.execute( task );
+      return;
+    }
+    event.executor = name;
+    event.begin();
+    delegate.execute( new Runnable() {
+      @Override
+      public void run() {
+        event.commit();
+        task.run();
+      }
+    } );
+  }
+
+}
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+
+@Provider
+public class FlightRecorderInterceptor implements ReaderInterceptor, WriterInterceptor {
+
+  static final String BYTES_IN = FlightRecorderInterceptor.class.getName() + ".bytesIn";
+  static final String BYTES_OUT = FlightRecorderInterceptor.class.getName() + ".bytesOut";
+
+  @Override
+  public Object aroundReadFrom( ReaderInterceptorContext context ) throws IOException, WebApplicationException {
+    if( FlightRecorderListener.isEnabled() ) {
+      CountingInputStream in = new CountingInputStream( context.getInputStream() );
+      context.setInputStream( in );
+      context.setProperty( BYTES_IN, in );
+    }
+    return context.proceed();
+  }
+
+  @Override
+  public void aroundWriteTo( WriterInterceptorContext context ) throws IOException, WebApplicationException {
+    if( FlightRecorderListener.isEnabled() ) {
+      CountingOutputStream out = new CountingOutputStream( context.getOutputStream() );
+      context.setOutputStream( out );
+      context.setProperty( BYTES_OUT, out );
+    }
+    context.proceed();
+  }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import jdk.jfr.EventType;
+
+import javax.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+
+@Provider
+public class FlightRecorderListener implements ApplicationEventListener {
+
+  private static final EventType TYPE = EventType.getEventType( FlightRequestEvent.class );
+
+  static boolean isEnabled() {
+    return TYPE.isEnabled();
+  }
+
+  @Override
+  public void onEvent( ApplicationEvent event ) {
+  }
+
+  @Override
+  public RequestEventListener onRequest( RequestEvent event ) {
+    if( !isEnabled() ) {
+      return null;
+    }
+    FlightRequestEvent flight = new FlightRequestEvent();
+    flight.begin();
+    return new RequestListener( flight );
+  }
+
+  private static class RequestListener implements RequestEventListener {
+
+    private final FlightRequestEvent flight;
+
+    private RequestListener( FlightRequestEvent flight ) {
+      this.flight = flight;
+    }
+
+    @Override
+    public void onEvent( RequestEvent event ) {
+      if( event.getType() != RequestEvent.Type.FINISHED ) {
+        return;
+      }
+      flight.end();
+      if( !flight.shouldCommit() ) {
+        return;
+      }
+      ContainerRequest request = event.getContainerRequest();
+      flight.method = request.getMethod();
+      flight.path = request.getPath( true );
+      ResourceMethod method = event.getUriInfo().getMatchedResourceMethod();
+      if( method != null && method.getInvocable() != null ) {
+        Method handler = method.getInvocable().getHandlingMethod();
+        flight.resource = handler.getDeclaringClass().getName() + "." + handler.getName();
+      }
+      ContainerResponse response = event.getContainerResponse();
+      flight.status = response == null ? 500 : response.getStatus();
+      flight.bytesIn = getCount( request.getProperty( FlightRecorderInterceptor.BYTES_IN ) );
+      flight.bytesOut = getCount( request.getProperty( FlightRecorderInterceptor.BYTES_OUT ) );
+      flight.commit();
+    }
+
+    private static long getCount( Object counter ) {
+      if( counter instanceof CountingInputStream ) {
+        return ( (CountingInputStream)counter ).getCount();
+      } else if( counter instanceof CountingOutputStream ) {
+        return ( (CountingOutputStream)counter ).getCount();
+      } else {
+        return 0;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.ParseException;
+
+@Admin
+@Path( "/admin/jfr" )
+public class FlightRecorderResource {
+
+  @Path( "/status" )
+  @GET
+  @Produces( "text/plain" )
+  public String status() {
+    return FlightRecorderControl.isRecording() ? "recording" : "stopped";
+  }
+
+  @Path( "/start" )
+  @POST
+  @Produces( "text/plain" )
+  public String start( @QueryParam( "settings" ) @DefaultValue( "default" ) String settings ) throws IOException, ParseException {
+    FlightRecorderControl.start( settings );
+    return "ok";
+  }
+
+  @Path( "/stop" )
+  @POST
+  @Produces( "text/plain" )
+  public String stop() {
+    FlightRecorderControl.stop();
+    return "ok";
+  }
+
+  @Path( "/dump" )
+  @POST
+  @Produces( "application/octet-stream" )
+  public StreamingOutput dump() {
+    return new StreamingOutput() {
+      @Override
+      public void write( OutputStream out ) throws IOException {
+        FlightRecorderControl.dump( out );
+      }
+    };
+  }
+
+}
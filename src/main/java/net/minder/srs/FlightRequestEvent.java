@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name( "net.minder.srs.Request" )
+@Label( "HTTP Request" )
+@Description( "A request handled by the Jersey application of a SimpleRestServer." )
+@Category( "Simple REST Server" )
+@StackTrace( false )
+public class FlightRequestEvent extends Event {
+
+  @Label( "HTTP Method" )
+  public String method;
+
+  @Label( "Request Path" )
+  public String path;
+
+  @Label( "Resource Method" )
+  public String resource;
+
+  @Label( "Status Code" )
+  public int status;
+
+  @Label( "Bytes In" )
+  @DataAmount
+  public long bytesIn;
+
+  @Label( "Bytes Out" )
+  @DataAmount
+  public long bytesOut;
+
+}
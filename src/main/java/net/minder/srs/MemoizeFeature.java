@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+import java.lang.reflect.Method;
+
+// Binds a MemoizeFilter to each @Memoize resource method. A request that leads a miss but fails before its
+// response is written, for example with an unmapped exception, releases its followers when it finishes.
+// Applications without @Memoize methods don't get a listener on their requests.
+public class MemoizeFeature implements Feature {
+
+  private final ResponseCache cache = new ResponseCache( 1000, 64 * 1024 * 1024 );
+
+  public ResponseCache getCache() {
+    return cache;
+  }
+
+  @Override
+  public boolean configure( FeatureContext context ) {
+    // Listeners can only be registered up front, before the resource methods are known.
+    final FlightListener listener = new FlightListener();
+    context.register( new DynamicFeature() {
+      @Override
+      public void configure( ResourceInfo resourceInfo, FeatureContext context ) {
+        Method method = resourceInfo.getResourceMethod();
+        Memoize memoize = method.getAnnotation( Memoize.class );
+        if( memoize == null ) {
+          memoize = resourceInfo.getResourceClass().getAnnotation( Memoize.class );
+        }
+        if( memoize != null ) {
+          context.register( new MemoizeFilter( cache, memoize ) );
+          listener.bound = true;
+        }
+      }
+    } );
+    context.register( listener );
+    return true;
+  }
+
+  private class FlightListener implements ApplicationEventListener, RequestEventListener {
+
+    private volatile boolean bound = false;
+
+    @Override
+    public void onEvent( ApplicationEvent event ) {
+    }
+
+    @Override
+    public RequestEventListener onRequest( RequestEvent event ) {
+      return bound ? this : null;
+    }
+
+    @Override
+    public void onEvent( RequestEvent event ) {
+      if( event.getType() == RequestEvent.Type.FINISHED ) {
+        Object flight = event.getContainerRequest().getProperty( MemoizeFilter.FLIGHT );
+        if( flight != null ) {
+          cache.complete( (ResponseCache.Flight)flight, null );
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+// Answers @Memoize requests from the ResponseCache, and captures the serialized body and headers of the request
+// that leads a miss as it is written. MemoizeFeature completes the flight of a leader that fails before either.
+// Set-Cookie is never replayed, as it belongs to the client that caused the miss.
+class MemoizeFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+  static final String CACHE_HEADER = "X-Cache";
+
+  static final String FLIGHT = MemoizeFilter.class.getName() + ".flight";
+  private static final long MAX_WAIT_MILLIS = 60000;
+  private static final Set<String> UNCACHED_HEADERS = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+
+  static {
+    UNCACHED_HEADERS.addAll( Arrays.asList(
+        CACHE_HEADER, HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.SET_COOKIE, HttpHeaders.DATE ) );
+  }
+
+  private final ResponseCache cache;
+  private final long ttl;
+  private final String[] headers;
+
+  MemoizeFilter( ResponseCache cache, Memoize memoize ) {
+    this.cache = cache;
+    this.ttl = memoize.unit().toNanos( memoize.value() );
+    this.headers = memoize.headers();
+  }
+
+  @Override
+  public void filter( ContainerRequestContext request ) throws IOException {
+    if( !"GET".equals( request.getMethod() ) ) {
+      return;
+    }
+    ResponseCache.Lookup lookup = cache.lookup( key( request ), System.nanoTime() );
+    ResponseCache.Flight flight = lookup.flight;
+    if( lookup.leader ) {
+      request.setProperty( FLIGHT, flight );
+      return;
+    }
+    ResponseCache.Entry entry;
+    try {
+      entry = flight.await( getWait( request ), TimeUnit.MILLISECONDS );
+    } catch( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      entry = null;
+    }
+    if( entry != null ) {
+      Response.ResponseBuilder response = Response.ok( entry.body, entry.type );
+      for( Map.Entry<String,List<Object>> header: entry.headers.entrySet() ) {
+        for( Object value: header.getValue() ) {
+          response.header( header.getKey(), value );
+        }
+      }
+      request.abortWith( response.header( CACHE_HEADER, flight.isHit() ? "hit" : "coalesced" ).build() );
+    }
+    // Otherwise the leader's response wasn't cacheable, so compute this one independently.
+  }
+
+  @Override
+  public void filter( ContainerRequestContext request, ContainerResponseContext response ) throws IOException {
+    ResponseCache.Flight flight = (ResponseCache.Flight)request.getProperty( FLIGHT );
+    if( flight != null ) {
+      if( response.getStatus() != 200 || !response.hasEntity() ) {
+        request.removeProperty( FLIGHT );
+        cache.complete( flight, null );
+      } else {
+        response.getHeaders().putSingle( CACHE_HEADER, "miss" );
+      }
+    }
+  }
+
+  @Override
+  public void aroundWriteTo( WriterInterceptorContext context ) throws IOException, WebApplicationException {
+    ResponseCache.Flight flight = (ResponseCache.Flight)context.getProperty( FLIGHT );
+    if( flight == null ) {
+      context.proceed();
+      return;
+    }
+    context.removeProperty( FLIGHT );
+    CapturingOutputStream out = new CapturingOutputStream( context.getOutputStream(), cache.getMaxBytes() );
+    context.setOutputStream( out );
+    ResponseCache.Entry entry = null;
+    try {
+      context.proceed();
+      out.flush();
+      byte[] body = out.getCaptured();
+      if( body != null ) {
+        MediaType type = context.getMediaType();
+        entry = new ResponseCache.Entry( type == null ? null : type.toString(), body, copyHeaders( context.getHeaders() ),
+            System.nanoTime() + ttl );
+      }
+    } finally {
+      cache.complete( flight, entry );
+    }
+  }
+
+  private static MultivaluedMap<String,Object> copyHeaders( MultivaluedMap<String,Object> headers ) {
+    MultivaluedMap<String,Object> copy = new MultivaluedHashMap<>();
+    for( Map.Entry<String,List<Object>> header: headers.entrySet() ) {
+      if( !UNCACHED_HEADERS.contains( header.getKey() ) ) {
+        copy.put( header.getKey(), new ArrayList<>( header.getValue() ) );
+      }
+    }
+    return copy;
+  }
+
+  private String key( ContainerRequestContext request ) {
+    URI uri = request.getUriInfo().getRequestUri();
+    StringBuilder key = new StringBuilder( uri.getRawPath() );
+    if( uri.getRawQuery() != null ) {
+      key.append( '?' ).append( uri.getRawQuery() );
+    }
+    key.append( '\n' ).append( request.getHeaderString( HttpHeaders.ACCEPT ) );
+    for( String header: headers ) {
+      key.append( '\n' ).append( request.getHeaderString( header ) );
+    }
+    return key.toString();
+  }
+
+  private static long getWait( ContainerRequestContext request ) {
+    Object deadline = request.getProperty( RequestDeadline.PROPERTY );
+    if( deadline instanceof RequestDeadline ) {
+      return Math.min( MAX_WAIT_MILLIS, ( (RequestDeadline)deadline ).getRemaining( TimeUnit.MILLISECONDS ) );
+    }
+    return MAX_WAIT_MILLIS;
+  }
+
+  // Copies what is written until it exceeds max, after which the response is streamed but not cached.
+  private static class CapturingOutputStream extends FilterOutputStream {
+
+    private final long max;
+    private ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+    private CapturingOutputStream( OutputStream out, long max ) {
+      super( out );
+      this.max = max;
+    }
+
+    @Override
+    public void write( int b ) throws IOException {
+      out.write( b );
+      capture( new byte[]{ (byte)b }, 0, 1 );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException {
+      out.write( b, off, len );
+      capture( b, off, len );
+    }
+
+    private void capture( byte[] b, int off, int len ) {
+      if( captured != null ) {
+        if( captured.size() + len > max ) {
+          captured = null;
+        } else {
+          captured.write( b, off, len );
+        }
+      }
+    }
+
+    private byte[] getCaptured() {
+      return captured == null ? null : captured.toByteArray();
+    }
+
+  }
+
+}
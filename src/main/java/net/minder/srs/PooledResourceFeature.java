@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.ServiceLocatorProvider;
+import org.glassfish.jersey.process.internal.RequestScoped;
+
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Binds each pooled resource class to its ResourcePool in request scope.
+// Jersey looks resource instances up from the service locator before creating them,
+// so the pool is used for every request and gets the instance back when the request scope is released.
+public class PooledResourceFeature implements Feature {
+
+  private final Map<Class<?>,ResourcePool<?>> pools = new ConcurrentHashMap<>();
+
+  public <T> ResourcePool<T> pool( Class<T> type, int size ) {
+    ResourcePool<T> pool = new ResourcePool<>( type, size );
+    pools.put( type, pool );
+    return pool;
+  }
+
+  @SuppressWarnings( "unchecked" )
+  public <T> ResourcePool<T> getPool( Class<T> type ) {
+    return (ResourcePool<T>)pools.get( type );
+  }
+
+  @Override
+  public boolean configure( FeatureContext context ) {
+    if( pools.isEmpty() ) {
+      return false;
+    }
+    for( ResourcePool<?> pool: pools.values() ) {
+      pool.attach( ServiceLocatorProvider.getServiceLocator( context ) );
+    }
+    context.register( new AbstractBinder() {
+      @Override
+      protected void configure() {
+        for( ResourcePool<?> pool: pools.values() ) {
+          bind( pool );
+        }
+      }
+      private <T> void bind( ResourcePool<T> pool ) {
+        bindFactory( pool ).to( pool.getType() ).in( RequestScoped.class );
+      }
+    } );
+    return true;
+  }
+
+}
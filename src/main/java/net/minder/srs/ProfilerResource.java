@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
+
+// Profiles the server's threads on request, for example:
+// curl 'http://host:port/admin/profile?seconds=30&hz=100' > stacks.txt && flamegraph.pl stacks.txt > cpu.svg
+// Registered by SimpleRestServer.profiler(). The request occupies one server thread for the duration.
+// Only administrators may profile, see @Admin, and only one profile runs at a time, others get a 409.
+@Admin
+@Path( "/admin/profile" )
+public class ProfilerResource {
+
+  private static final int MAX_SECONDS = 300;
+
+  private final StackSampler sampler;
+
+  public ProfilerResource( StackSampler sampler ) {
+    this.sampler = sampler;
+  }
+
+  @GET
+  @Deadline( -1 )
+  @Produces( "text/plain" )
+  public String profile(
+      @QueryParam( "seconds" ) @DefaultValue( "10" ) int seconds,
+      @QueryParam( "hz" ) @DefaultValue( "100" ) int hz,
+      @QueryParam( "state" ) @DefaultValue( "runnable" ) String state ) throws InterruptedException {
+    if( seconds < 1 || seconds > MAX_SECONDS || hz < 1 || hz > 1000 ) {
+      throw new WebApplicationException( "seconds must be 1-" + MAX_SECONDS + " and hz 1-1000", Response.Status.BAD_REQUEST );
+    }
+    try {
+      return sampler.profile( seconds, TimeUnit.SECONDS, hz, "all".equalsIgnoreCase( state ) ).toCollapsed();
+    } catch( IllegalStateException e ) {
+      throw new WebApplicationException( e.getMessage(), Response.Status.CONFLICT );
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.glassfish.jersey.jdkhttp.JdkHttpHandlerContainer;
+import org.glassfish.jersey.server.ContainerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Routes each exchange to the current Jersey container.  A reload swaps in a new container while requests
+// already dispatched to the previous one finish there; the previous one is shut down once it is idle.
+class ReloadableHandler implements HttpHandler {
+
+  private volatile Generation current;
+
+  ReloadableHandler( ResourceConfig config ) {
+    current = new Generation( config );
+  }
+
+  JdkHttpHandlerContainer getContainer() {
+    return current.container;
+  }
+
+  void start() {
+    current.start();
+  }
+
+  void reload( ResourceConfig config ) {
+    Generation next = new Generation( config );
+    next.start();
+    Generation prev;
+    synchronized( this ) {
+      prev = current;
+      current = next;
+    }
+    prev.retire();
+  }
+
+  void stop() {
+    current.retire();
+  }
+
+  @Override
+  public void handle( HttpExchange exchange ) throws IOException {
+    Generation generation = acquire();
+    try {
+      generation.container.handle( exchange );
+    } finally {
+      generation.release();
+    }
+  }
+
+  private Generation acquire() {
+    while( true ) {
+      Generation generation = current;
+      generation.active.incrementAndGet();
+      if( generation == current ) {
+        return generation;
+      }
+      generation.release();
+    }
+  }
+
+  private static class Generation {
+
+    private final JdkHttpHandlerContainer container;
+    private final AtomicInteger active = new AtomicInteger( 0 );
+    private final AtomicBoolean shutdown = new AtomicBoolean( false );
+    private volatile boolean retired = false;
+
+    private Generation( ResourceConfig config ) {
+      container = ContainerFactory.createContainer( JdkHttpHandlerContainer.class, config );
+    }
+
+    private void start() {
+      container.getApplicationHandler().onStartup( container );
+    }
+
+    private void retire() {
+      retired = true;
+      if( active.get() == 0 ) {
+        shutdown();
+      }
+    }
+
+    private void release() {
+      if( active.decrementAndGet() == 0 && retired ) {
+        shutdown();
+      }
+    }
+
+    private void shutdown() {
+      if( shutdown.compareAndSet( false, true ) ) {
+        container.getApplicationHandler().onShutdown( container );
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.ws.rs.ServerErrorException;
+import java.util.concurrent.TimeUnit;
+
+// The time left for the current request, injectable into resources with @Context or @Inject.
+// Long running resource code can call check() between steps to give up once the budget is spent,
+// and DeadlinePropagationFilter forwards the remaining budget on outgoing client requests.
+public final class RequestDeadline {
+
+  // Request header carrying a client's time budget in milliseconds. It can only shorten a configured deadline,
+  // without one it is only applied cooperatively, through check() and DeadlinePropagationFilter.
+  public static final String HEADER = "X-Request-Timeout";
+
+  public static final RequestDeadline NONE = new RequestDeadline( Long.MAX_VALUE, false, false );
+
+  static final String PROPERTY = RequestDeadline.class.getName();
+
+  private static final ThreadLocal<RequestDeadline> current = new ThreadLocal<>();
+
+  private final long expires;
+  private final boolean bounded;
+  private final boolean enforced;
+
+  private RequestDeadline( long expires, boolean bounded, boolean enforced ) {
+    this.expires = expires;
+    this.bounded = bounded;
+    this.enforced = enforced;
+  }
+
+  public static RequestDeadline after( long timeout, TimeUnit unit ) {
+    return new RequestDeadline( System.nanoTime() + unit.toNanos( timeout ), true, true );
+  }
+
+  // A deadline the server doesn't interrupt the request for, it is up to the resource to check it.
+  static RequestDeadline cooperative( long timeout, TimeUnit unit ) {
+    return new RequestDeadline( System.nanoTime() + unit.toNanos( timeout ), true, false );
+  }
+
+  // The deadline of the request being handled on this thread, NONE outside of a request.
+  public static RequestDeadline current() {
+    RequestDeadline deadline = current.get();
+    return deadline == null ? NONE : deadline;
+  }
+
+  static RequestDeadline enter( RequestDeadline deadline ) {
+    RequestDeadline previous = current.get();
+    current.set( deadline );
+    return previous;
+  }
+
+  static void exit( RequestDeadline previous ) {
+    if( previous == null ) {
+      current.remove();
+    } else {
+      current.set( previous );
+    }
+  }
+
+  public boolean hasDeadline() {
+    return bounded;
+  }
+
+  boolean isEnforced() {
+    return enforced;
+  }
+
+  public long getRemaining( TimeUnit unit ) {
+    if( !bounded ) {
+      return Long.MAX_VALUE;
+    }
+    return unit.convert( Math.max( 0, expires - System.nanoTime() ), TimeUnit.NANOSECONDS );
+  }
+
+  public boolean isExpired() {
+    return bounded && expires - System.nanoTime() <= 0;
+  }
+
+  public void check() {
+    if( isExpired() ) {
+      throw exceeded();
+    }
+  }
+
+  static ServerErrorException exceeded() {
+    return new ServerErrorException( "Request deadline exceeded.", 504 );
+  }
+
+  @Override
+  public String toString() {
+    return bounded ? getRemaining( TimeUnit.MILLISECONDS ) + "ms" : "none";
+  }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import org.glassfish.hk2.api.Factory;
+import org.glassfish.hk2.api.ServiceLocator;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A bounded pool of resource instances handed out per request in place of a new instance every time.
+// Instances are created and injected by HK2 and returned to the pool when the request scope ends.
+// When the pool is empty a new instance is created, and instances returned to a full pool are dropped,
+// so requests never wait and at most size idle instances are retained. The size does not cap live instances:
+// a burst of concurrent requests gets one instance each, use a bulkhead to limit concurrency itself.
+// Pooled instances outlive a request, so request specific state must come in through method parameters.
+public class ResourcePool<T> implements Factory<T> {
+
+  private final Class<T> type;
+  private final int size;
+  private volatile BlockingQueue<T> idle;
+  private volatile ServiceLocator locator;
+  private final AtomicLong created = new AtomicLong();
+  private final AtomicLong reused = new AtomicLong();
+
+  ResourcePool( Class<T> type, int size ) {
+    this.type = type;
+    this.size = Math.max( 1, size );
+    this.idle = new ArrayBlockingQueue<>( this.size );
+  }
+
+  // Called once per application generation, on start and on each reload. Each generation has its own locator,
+  // so the idle instances injected by the previous one are discarded rather than handed to the new application.
+  void attach( ServiceLocator locator ) {
+    this.locator = locator;
+    this.idle = new ArrayBlockingQueue<>( size );
+  }
+
+  @Override
+  public T provide() {
+    T instance = idle.poll();
+    if( instance != null ) {
+      reused.incrementAndGet();
+      return instance;
+    }
+    created.incrementAndGet();
+    return locator.createAndInitialize( type );
+  }
+
+  @Override
+  public void dispose( T instance ) {
+    idle.offer( instance );
+  }
+
+  public Class<T> getType() {
+    return type;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public int getIdle() {
+    return idle.size();
+  }
+
+  public long getCreated() {
+    return created.get();
+  }
+
+  public long getReused() {
+    return reused.get();
+  }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// The serialized responses of @Memoize resources, evicted least recently used first once either the entry
+// or the byte limit is reached, and dropped once their time to live has passed.
+// Misses are single flight: the first request for a key computes it and later ones wait for its result.
+public class ResponseCache {
+
+  private final Map<String,Entry> entries = new LinkedHashMap<>( 16, 0.75f, true );
+  private final Map<String,Flight> flights = new HashMap<>();
+  private volatile int maxEntries;
+  private volatile long maxBytes;
+  private long bytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long coalesced = 0;
+  private long evictions = 0;
+
+  public ResponseCache( int maxEntries, long maxBytes ) {
+    limits( maxEntries, maxBytes );
+  }
+
+  public void limits( int maxEntries, long maxBytes ) {
+    this.maxEntries = Math.max( 0, maxEntries );
+    this.maxBytes = Math.max( 0, maxBytes );
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  // Misses that waited for another request's result rather than computing it.
+  public synchronized long getCoalesced() {
+    return coalesced;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  // Returns a completed flight for a fresh entry, the flight already computing the key, or a new flight the
+  // caller leads and must complete. Only the lookup that created a flight leads it, whichever thread asks next.
+  synchronized Lookup lookup( String key, long now ) {
+    Entry entry = entries.get( key );
+    if( entry != null ) {
+      if( now - entry.expires < 0 ) {
+        hits++;
+        return new Lookup( new Flight( entry ), false );
+      }
+      remove( key );
+    }
+    Flight flight = flights.get( key );
+    if( flight != null ) {
+      coalesced++;
+      return new Lookup( flight, false );
+    }
+    misses++;
+    flight = new Flight( key );
+    flights.put( key, flight );
+    return new Lookup( flight, true );
+  }
+
+  // Stores the leader's result, null if it isn't cacheable, and releases the requests waiting for it.
+  void complete( Flight flight, Entry entry ) {
+    synchronized( this ) {
+      if( flight.done.getCount() == 0 ) {
+        return;
+      }
+      flights.remove( flight.key );
+      if( entry != null && entry.body.length <= maxBytes && maxEntries > 0 ) {
+        remove( flight.key );
+        entries.put( flight.key, entry );
+        bytes += entry.body.length;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while( entries.size() > maxEntries || bytes > maxBytes ) {
+          bytes -= eldest.next().body.length;
+          eldest.remove();
+          evictions++;
+        }
+      }
+      flight.entry = entry;
+      flight.done.countDown();
+    }
+  }
+
+  long getMaxBytes() {
+    return maxBytes;
+  }
+
+  private void remove( String key ) {
+    Entry old = entries.remove( key );
+    if( old != null ) {
+      bytes -= old.body.length;
+    }
+  }
+
+  static class Entry {
+
+    final String type;
+    final byte[] body;
+    final MultivaluedMap<String,Object> headers;
+    final long expires;
+
+    Entry( String type, byte[] body, long expires ) {
+      this( type, body, new MultivaluedHashMap<String,Object>(), expires );
+    }
+
+    Entry( String type, byte[] body, MultivaluedMap<String,Object> headers, long expires ) {
+      this.type = type;
+      this.body = body;
+      this.headers = headers;
+      this.expires = expires;
+    }
+
+  }
+
+  static class Lookup {
+
+    final Flight flight;
+    final boolean leader;
+
+    private Lookup( Flight flight, boolean leader ) {
+      this.flight = flight;
+      this.leader = leader;
+    }
+
+  }
+
+  static class Flight {
+
+    private final String key;
+    private final CountDownLatch done = new CountDownLatch( 1 );
+    private volatile Entry entry;
+
+    private Flight( String key ) {
+      this.key = key;
+    }
+
+    private Flight( Entry entry ) {
+      this.key = null;
+      this.entry = entry;
+      done.countDown();
+    }
+
+    boolean isHit() {
+      return key == null;
+    }
+
+    // The leader's result, or null if it wasn't cacheable or didn't arrive in time.
+    Entry await( long timeout, TimeUnit unit ) throws InterruptedException {
+      return done.await( timeout, unit ) ? entry : null;
+    }
+
+  }
+
+}
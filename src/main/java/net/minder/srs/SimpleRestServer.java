@@ -17,27 +17,86 @@
  */
 package net.minder.srs;
 
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
-import org.glassfish.jersey.jdkhttp.JdkHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 
+import javax.ws.rs.ProcessingException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SimpleRestServer {
 
   private URI uri;
   private ResourceConfig config;
+  private ThreadGroup group = new ThreadGroup( "simple-rest-server" );
   private ExecutorService threads;
   private HttpServer server;
+  private ReloadableHandler handler;
+  private Map<String,HttpHandler> contexts = new LinkedHashMap<>();
   private Semaphore barrier = new Semaphore( 1 );
+  private boolean flightRecorder = false;
+  private BodyLimitFeature bodyLimits = new BodyLimitFeature();
+  private PooledResourceFeature pools = new PooledResourceFeature();
+  private DispatchFeature dispatch = new DispatchFeature( group );
+  private MemoizeFeature memoizer = new MemoizeFeature();
+  private AdminFilter admin = new AdminFilter();
+  private AccessLog accessLog = null;
+  private StackSampler sampler = new StackSampler( group );
+  private BatchResource batch = null;
+  private List<EventBroadcaster> broadcasters = new ArrayList<>();
 
   public SimpleRestServer() {
-    config = new ResourceConfig();
-    providers( AssertionErrorExceptionMapper.class );
+    config = builtins( new ResourceConfig() );
+  }
+
+  // The providers the server's own features depend on, added to any config it runs.
+  private ResourceConfig builtins( ResourceConfig config ) {
+    List<Object> providers = new ArrayList<>();
+    providers.add( AssertionErrorExceptionMapper.class );
+    providers.add( BinaryJsonFeature.class );
+    if( flightRecorder ) {
+      providers.add( FlightRecorderListener.class );
+      providers.add( FlightRecorderInterceptor.class );
+    }
+    providers.add( bodyLimits );
+    providers.add( pools );
+    providers.add( dispatch );
+    providers.add( memoizer );
+    providers.add( admin );
+    for( Object provider: providers ) {
+      if( provider instanceof Class ) {
+        if( !config.isRegistered( (Class<?>)provider ) ) {
+          config.register( (Class<?>)provider );
+        }
+      } else if( !config.isRegistered( provider ) ) {
+        config.register( provider );
+      }
+    }
+    return config;
+  }
+
+  // The JDK server writes response headers and body separately, so with Nagle enabled small responses
+  // wait on the client's delayed ACK. This sets the JVM wide sun.net.httpserver.nodelay property, which the JDK
+  // reads once, so it must be called before the first server in the JVM is created and affects all of them.
+  public static void noDelay() {
+    if( System.getProperty( "sun.net.httpserver.nodelay" ) == null ) {
+      System.setProperty( "sun.net.httpserver.nodelay", "true" );
+    }
   }
 
   public SimpleRestServer uri( URI uri ) {
@@ -63,15 +122,191 @@ public class SimpleRestServer {
     return this;
   }
 
+  public SimpleRestServer singletons( Object... resources ) {
+    config.registerInstances( resources );
+    return this;
+  }
+
+  // Reuses up to size idle instances of the resource class across requests, see ResourcePool.
+  public <T> SimpleRestServer pooled( Class<T> resourceClass, int size ) {
+    pools.pool( resourceClass, size );
+    config.registerClasses( resourceClass );
+    return this;
+  }
+
+  public <T> ResourcePool<T> getPool( Class<T> resourceClass ) {
+    return pools.getPool( resourceClass );
+  }
+
+  public SimpleRestServer bulkhead( String name, int threads, int queue ) {
+    dispatch.define( name, threads, queue );
+    return this;
+  }
+
+  // Assigns resource classes without a @Bulkhead annotation to a bulkhead.
+  public SimpleRestServer bulkhead( String name, Class<?>... resourceClasses ) {
+    dispatch.assign( name, resourceClasses );
+    return this;
+  }
+
+  public BulkheadPool getBulkhead( String name ) {
+    return dispatch.getPool( name );
+  }
+
+  // The time budget of requests to resources without @Deadline.
+  public SimpleRestServer deadline( long timeout, TimeUnit unit ) {
+    dispatch.deadline( timeout, unit );
+    return this;
+  }
+
+  // The most requests with a deadline that run at once outside of a bulkhead, further ones get a 503.
+  public SimpleRestServer deadlineThreads( int threads ) {
+    dispatch.deadlineThreads( threads );
+    return this;
+  }
+
+  // Bounds the cache of @Memoize responses.
+  public SimpleRestServer memoize( int maxEntries, long maxBytes ) {
+    memoizer.getCache().limits( maxEntries, maxBytes );
+    return this;
+  }
+
+  public ResponseCache getResponseCache() {
+    return memoizer.getCache();
+  }
+
+  public SimpleRestServer bodyLimit( long maxBytes ) {
+    return bodyLimit( maxBytes, -1 );
+  }
+
+  public SimpleRestServer bodyLimit( long maxBytes, long spillBytes ) {
+    bodyLimits.defaults( maxBytes, spillBytes );
+    return this;
+  }
+
+  public SimpleRestServer files( String path, File directory ) {
+    return context( path, new StaticFileHandler( directory ) );
+  }
+
+  // Serves path with a plain HttpHandler that bypasses Jersey, sharing the server's executor and lifecycle.
+  public SimpleRestServer handler( String path, HttpHandler handler ) {
+    return context( path, handler );
+  }
+
+  // Streams the broadcaster's Server-Sent Events at path. The broadcaster is closed with the server.
+  public SimpleRestServer events( String path, EventBroadcaster broadcaster ) {
+    broadcaster.group( group );
+    broadcasters.add( broadcaster );
+    return context( path, broadcaster );
+  }
+
+  private SimpleRestServer context( String path, HttpHandler handler ) {
+    if( contexts.put( path, handler ) != null && server != null ) {
+      server.removeContext( path );
+    }
+    if( server != null ) {
+      createContext( path, handler );
+    }
+    return this;
+  }
+
+  private void createContext( String path, HttpHandler handler ) {
+    HttpContext context = server.createContext( path, handler );
+    context.getFilters().add( new ClientAddressFilter() );
+    if( accessLog != null ) {
+      context.getFilters().add( accessLog.getFilter() );
+    }
+  }
+
+  // Logs requests to every context. Must be set before start().
+  public SimpleRestServer accessLog( AccessLog log ) {
+    accessLog = log;
+    return this;
+  }
+
+  // Requires the role for @Admin resources instead of a loopback client. Roles come from the application's
+  // own authentication, e.g. a filter that sets the request's SecurityContext.
+  public SimpleRestServer adminRole( String role ) {
+    admin.role( role );
+    return this;
+  }
+
+  public SimpleRestServer flightRecorder() {
+    providers( FlightRecorderListener.class, FlightRecorderInterceptor.class );
+    flightRecorder = true;
+    return this;
+  }
+
+  // Serves /batch, which runs up to maxParts sub-requests per call with up to parallelism of them at once.
+  public SimpleRestServer batch( int parallelism, int maxParts ) {
+    if( batch != null ) {
+      throw new IllegalStateException( "The batch resource is already registered." );
+    }
+    batch = new BatchResource( group, parallelism, maxParts );
+    return singletons( batch );
+  }
+
+  // Serves /admin/profile, which samples the server's threads on request.
+  public SimpleRestServer profiler() {
+    return singletons( new ProfilerResource( sampler ) );
+  }
+
+  // Samples the threads that run requests: the server's executor, bulkheads and deadline invocations.
+  public StackSampler getProfiler() {
+    return sampler;
+  }
+
   public SimpleRestServer start() throws InterruptedException {
-    threads = Executors.newCachedThreadPool();
-    server = JdkHttpServerFactory.createHttpServer( uri, config, false );
-    server.setExecutor( threads );
+    if( uri == null || !"http".equalsIgnoreCase( uri.getScheme() ) ) {
+      throw new IllegalArgumentException( "An http URI is required: " + uri );
+    }
+    dispatch.check( config );
+    String path = uri.getPath();
+    if( path == null || path.isEmpty() ) {
+      path = "/";
+    }
+    int port = uri.getPort() == -1 ? 80 : uri.getPort();
+    try {
+      server = HttpServer.create( new InetSocketAddress( port ), 0 );
+    } catch( IOException e ) {
+      throw new ProcessingException( "Failed to create server for " + uri, e );
+    }
+    threads = Executors.newCachedThreadPool( new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+      @Override
+      public Thread newThread( Runnable runnable ) {
+        return new Thread( group, runnable, "server-" + count.incrementAndGet() );
+      }
+    } );
+    handler = new ReloadableHandler( new ResourceConfig( config ) );
+    if( accessLog != null ) {
+      accessLog.start();
+    }
+    createContext( path, handler );
+    for( Map.Entry<String,HttpHandler> context: contexts.entrySet() ) {
+      createContext( context.getKey(), context.getValue() );
+    }
+    server.setExecutor( flightRecorder ? new FlightRecorderExecutor( "server", threads ) : threads );
     barrier.acquire();
+    handler.start();
     server.start();
     return this;
   }
 
+  public SimpleRestServer reload() {
+    return reload( config );
+  }
+
+  // Replaces the resources and providers, keeping the server's own features such as bulkheads and body limits.
+  public SimpleRestServer reload( ResourceConfig config ) {
+    dispatch.check( config );
+    this.config = builtins( config );
+    if( handler != null ) {
+      handler.reload( new ResourceConfig( config ) );
+    }
+    return this;
+  }
+
   public SimpleRestServer awaitStop() throws InterruptedException {
     barrier.acquire();
     return this;
@@ -83,8 +318,23 @@ public class SimpleRestServer {
   }
 
   public void destroy() {
-    server.stop( 0 );
+    for( EventBroadcaster broadcaster: broadcasters ) {
+      broadcaster.close();
+    }
+    server.stop( 1 );
+    handler.stop();
     threads.shutdown();
+    dispatch.shutdown();
+    if( batch != null ) {
+      batch.shutdown();
+    }
+    if( accessLog != null ) {
+      try {
+        accessLog.close();
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 
 }
@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.JavaProcessPreBuilder;
+import net.minder.util.PortUtils;
+import org.junit.rules.ExternalResource;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// A JUnit rule that provides a SimpleRestServer shared by every test class in the JVM that asks for the same key.
+// The first class to use a key starts the server, either in-process or as a forked child, and later classes reuse it.
+// Servers stay up between classes and are all torn down once, by a shutdown hook, when the test JVM exits.
+//
+//   @ClassRule
+//   public static SimpleRestServerRule server = SimpleRestServerRule.forked( SimpleRestServerSample.class );
+//
+public class SimpleRestServerRule extends ExternalResource {
+
+  private static final long START_TIMEOUT_SECONDS = 60;
+  private static final long STOP_TIMEOUT_SECONDS = 10;
+
+  private static final Map<String,Fixture> fixtures = new LinkedHashMap<>();
+  private static Thread hook = null;
+
+  private final String key;
+  private final FixtureFactory factory;
+  private Fixture fixture = null;
+
+  private SimpleRestServerRule( String key, FixtureFactory factory ) {
+    this.key = key;
+    this.factory = factory;
+  }
+
+  // An in-process server for the given resource classes, keyed by their names.
+  public static SimpleRestServerRule inProcess( final Class<?>... resources ) {
+    return inProcess( "in-process:" + names( resources ), server -> server.resources( resources ) );
+  }
+
+  // An in-process server configured by the caller. The URI is set by the rule.
+  public static SimpleRestServerRule inProcess( String key, final Consumer<SimpleRestServer> configure ) {
+    return new SimpleRestServerRule( key, () -> new InProcessFixture( configure ) );
+  }
+
+  // A forked child running the main class. The free port is passed as the first argument, followed by args.
+  public static SimpleRestServerRule forked( final Class<?> main, final String... args ) {
+    String key = "forked:" + main.getName() + ( args.length == 0 ? "" : ":" + String.join( ",", args ) );
+    return forked( key, pb -> pb.main( main ).args( args ) );
+  }
+
+  // A forked child configured by the caller. The free port is passed as the first argument.
+  public static SimpleRestServerRule forked( String key, final Consumer<JavaProcessPreBuilder> configure ) {
+    return new SimpleRestServerRule( key, () -> new ForkedFixture( configure ) );
+  }
+
+  @Override
+  protected void before() throws Throwable {
+    fixture = acquire( key, factory );
+  }
+
+  @Override
+  protected void after() {
+    fixture = null;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public URI getUri() {
+    return fixture().uri;
+  }
+
+  // The server when running in-process, otherwise null.
+  public SimpleRestServer getServer() {
+    Fixture f = fixture();
+    return f instanceof InProcessFixture ? ( (InProcessFixture)f ).server : null;
+  }
+
+  // The child process when forked, otherwise null.
+  public Process getProcess() {
+    Fixture f = fixture();
+    return f instanceof ForkedFixture ? ( (ForkedFixture)f ).process : null;
+  }
+
+  // Stops every shared server now instead of at JVM exit.
+  public static void stopAll() {
+    List<Fixture> list;
+    synchronized( SimpleRestServerRule.class ) {
+      list = new ArrayList<>( fixtures.values() );
+      fixtures.clear();
+    }
+    for( Fixture f: list ) {
+      try {
+        f.stop();
+      } catch( Exception e ) {
+        // Ignore, best effort teardown.
+      }
+    }
+  }
+
+  private Fixture fixture() {
+    if( fixture == null ) {
+      throw new IllegalStateException( "Server rule " + key + " is not active." );
+    }
+    return fixture;
+  }
+
+  private static synchronized Fixture acquire( String key, FixtureFactory factory ) throws Exception {
+    Fixture f = fixtures.get( key );
+    if( f == null ) {
+      f = factory.create();
+      f.start();
+      fixtures.put( key, f );
+      if( hook == null ) {
+        hook = new Thread( SimpleRestServerRule::stopAll, "simple-rest-server-rule-teardown" );
+        Runtime.getRuntime().addShutdownHook( hook );
+      }
+    }
+    return f;
+  }
+
+  private static String names( Class<?>[] classes ) {
+    StringBuilder names = new StringBuilder();
+    for( Class<?> c: classes ) {
+      if( names.length() > 0 ) {
+        names.append( ',' );
+      }
+      names.append( c.getName() );
+    }
+    return names.toString();
+  }
+
+  private interface FixtureFactory {
+    Fixture create() throws Exception;
+  }
+
+  private static abstract class Fixture {
+
+    URI uri;
+
+    void start() throws Exception {
+      uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    }
+
+    abstract void stop() throws Exception;
+
+  }
+
+  private static class InProcessFixture extends Fixture {
+
+    private final Consumer<SimpleRestServer> configure;
+    private SimpleRestServer server;
+
+    private InProcessFixture( Consumer<SimpleRestServer> configure ) {
+      this.configure = configure;
+    }
+
+    @Override
+    void start() throws Exception {
+      super.start();
+      server = new SimpleRestServer();
+      configure.accept( server );
+      server.uri( uri ).start();
+    }
+
+    @Override
+    void stop() {
+      server.destroy();
+    }
+
+  }
+
+  private static class ForkedFixture extends Fixture {
+
+    private final Consumer<JavaProcessPreBuilder> configure;
+    private Process process;
+
+    private ForkedFixture( Consumer<JavaProcessPreBuilder> configure ) {
+      this.configure = configure;
+    }
+
+    @Override
+    void start() throws Exception {
+      super.start();
+      JavaProcessPreBuilder pb = new JavaProcessPreBuilder();
+      pb.inheritClassPath();
+      pb.inheritIO();
+      pb.args( Integer.toString( uri.getPort() ) );
+      configure.accept( pb );
+      process = pb.start();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( START_TIMEOUT_SECONDS );
+      while( !PortUtils.awaitOpenPort( uri, 100, TimeUnit.MILLISECONDS ) ) {
+        if( !process.isAlive() || System.nanoTime() - deadline >= 0 ) {
+          stop();
+          throw new IllegalStateException( "Forked server failed to open " + uri );
+        }
+      }
+    }
+
+    @Override
+    void stop() throws InterruptedException {
+      process.destroy();
+      if( !process.waitFor( STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS ) ) {
+        process.destroyForcibly();
+      }
+    }
+
+  }
+
+}
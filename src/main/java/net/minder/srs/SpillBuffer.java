@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Holds a request body in memory up to a threshold and in a temporary file beyond it.
+class SpillBuffer implements Closeable {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private Memory memory = null;
+  private File file = null;
+  private InputStream fileInput = null;
+
+  private SpillBuffer() {
+  }
+
+  static SpillBuffer read( InputStream in, long max, long spill ) throws IOException {
+    SpillBuffer buffer = new SpillBuffer();
+    buffer.memory = new Memory( (int)Math.min( spill, CHUNK_SIZE ) );
+    OutputStream out = buffer.memory;
+    byte[] chunk = new byte[ CHUNK_SIZE ];
+    long total = 0;
+    try {
+      int n;
+      while( ( n = in.read( chunk ) ) >= 0 ) {
+        total += n;
+        if( max >= 0 && total > max ) {
+          throw BodyLimitFilter.tooLarge( max );
+        }
+        if( buffer.file == null && total > spill ) {
+          buffer.file = File.createTempFile( "srs-body-", ".tmp" );
+          out = new FileOutputStream( buffer.file );
+          buffer.memory.writeTo( out );
+          buffer.memory = null;
+        }
+        out.write( chunk, 0, n );
+      }
+      out.close();
+    } catch( IOException | RuntimeException e ) {
+      out.close();
+      buffer.close();
+      throw e;
+    }
+    return buffer;
+  }
+
+  synchronized boolean isSpilled() {
+    return file != null;
+  }
+
+  synchronized InputStream getInputStream() throws IOException {
+    if( file == null ) {
+      return memory.toInputStream();
+    }
+    if( fileInput == null ) {
+      fileInput = new FileInputStream( file );
+    }
+    return new FilterInputStream( fileInput ) {
+      @Override
+      public void close() throws IOException {
+        SpillBuffer.this.close();
+      }
+    };
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    memory = null;
+    if( file != null ) {
+      try {
+        if( fileInput != null ) {
+          fileInput.close();
+        }
+      } finally {
+        file.delete();
+        file = null;
+        fileInput = null;
+      }
+    }
+  }
+
+  private static class Memory extends ByteArrayOutputStream {
+
+    private Memory( int size ) {
+      super( size );
+    }
+
+    private InputStream toInputStream() {
+      return new ByteArrayInputStream( buf, 0, count );
+    }
+
+  }
+
+}
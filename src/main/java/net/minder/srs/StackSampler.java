@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Samples the stacks of the threads in a thread group and aggregates them into collapsed stacks,
+// one "frame;frame;frame count" line per distinct stack, ready for flamegraph.pl and similar tools.
+// Sampling runs on the calling thread and only while a profile is being taken, so an idle sampler costs nothing.
+// Memory is bounded by the number of distinct stacks kept and the depth of each, excess samples are counted as [other].
+public class StackSampler {
+
+  public static final String OTHER = "[other]";
+  public static final String TRUNCATED = "[truncated]";
+
+  private final ThreadGroup group;
+  private final AtomicBoolean running = new AtomicBoolean();
+  private volatile int maxStacks = 10000;
+  private volatile int maxDepth = 128;
+
+  public StackSampler( ThreadGroup group ) {
+    this.group = group;
+  }
+
+  public StackSampler maxStacks( int maxStacks ) {
+    this.maxStacks = Math.max( 1, maxStacks );
+    return this;
+  }
+
+  public StackSampler maxDepth( int maxDepth ) {
+    this.maxDepth = Math.max( 1, maxDepth );
+    return this;
+  }
+
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  // Samples every thread in the group at hz for the duration and returns the collapsed stacks, most frequent first.
+  // Threads that aren't RUNNABLE are skipped unless all is set. Only one profile runs at a time.
+  public Profile profile( long duration, TimeUnit unit, int hz, boolean all ) throws InterruptedException {
+    if( !running.compareAndSet( false, true ) ) {
+      throw new IllegalStateException( "A profile is already running." );
+    }
+    try {
+      return sample( unit.toNanos( duration ), TimeUnit.SECONDS.toNanos( 1 ) / Math.max( 1, Math.min( hz, 1000 ) ), all );
+    } finally {
+      running.set( false );
+    }
+  }
+
+  private Profile sample( long duration, long interval, boolean all ) throws InterruptedException {
+    ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+    Map<String,long[]> stacks = new HashMap<>();
+    StringBuilder key = new StringBuilder();
+    Thread[] threads = new Thread[ 64 ];
+    long self = Thread.currentThread().getId();
+    long samples = 0;
+    long ticks = 0;
+    long start = System.nanoTime();
+    long next = start;
+    while( next - start < duration ) {
+      int count;
+      while( ( count = group.enumerate( threads, true ) ) == threads.length ) {
+        threads = new Thread[ threads.length * 2 ];
+      }
+      long[] ids = new long[ count ];
+      int n = 0;
+      for( int i = 0; i < count; i++ ) {
+        long id = threads[ i ].getId();
+        if( id != self ) {
+          ids[ n++ ] = id;
+        }
+        threads[ i ] = null;
+      }
+      // One call brings all of the threads to a single safepoint.
+      ThreadInfo[] infos = mx.getThreadInfo( n == count ? ids : Arrays.copyOf( ids, n ), maxDepth );
+      for( ThreadInfo info: infos ) {
+        if( info == null || ( !all && info.getThreadState() != Thread.State.RUNNABLE ) ) {
+          continue;
+        }
+        StackTraceElement[] frames = info.getStackTrace();
+        if( frames.length == 0 ) {
+          continue;
+        }
+        collapse( key, frames );
+        String stack = key.toString();
+        long[] counter = stacks.get( stack );
+        if( counter == null ) {
+          if( stacks.size() >= maxStacks ) {
+            stack = OTHER;
+            counter = stacks.get( OTHER );
+          }
+          if( counter == null ) {
+            counter = new long[ 1 ];
+            stacks.put( stack, counter );
+          }
+        }
+        counter[ 0 ]++;
+        samples++;
+      }
+      ticks++;
+      next += interval;
+      long sleep = next - System.nanoTime();
+      if( sleep > 0 ) {
+        TimeUnit.NANOSECONDS.sleep( sleep );
+      }
+    }
+    return new Profile( stacks, ticks, samples );
+  }
+
+  // Root frame first, as the collapsed format expects.
+  private void collapse( StringBuilder key, StackTraceElement[] frames ) {
+    key.setLength( 0 );
+    if( frames.length >= maxDepth ) {
+      key.append( TRUNCATED ).append( ';' );
+    }
+    for( int i = frames.length - 1; i >= 0; i-- ) {
+      StackTraceElement frame = frames[ i ];
+      key.append( frame.getClassName() ).append( '.' ).append( frame.getMethodName() );
+      if( i > 0 ) {
+        key.append( ';' );
+      }
+    }
+  }
+
+  public static class Profile {
+
+    private final List<Map.Entry<String,long[]>> stacks;
+    private final long ticks;
+    private final long samples;
+
+    private Profile( Map<String,long[]> stacks, long ticks, long samples ) {
+      this.stacks = new ArrayList<>( stacks.entrySet() );
+      Collections.sort( this.stacks, new Comparator<Map.Entry<String,long[]>>() {
+        @Override
+        public int compare( Map.Entry<String,long[]> a, Map.Entry<String,long[]> b ) {
+          return Long.compare( b.getValue()[ 0 ], a.getValue()[ 0 ] );
+        }
+      } );
+      this.ticks = ticks;
+      this.samples = samples;
+    }
+
+    public long getTicks() {
+      return ticks;
+    }
+
+    public long getSamples() {
+      return samples;
+    }
+
+    public int getStackCount() {
+      return stacks.size();
+    }
+
+    public String toCollapsed() {
+      StringBuilder out = new StringBuilder();
+      for( Map.Entry<String,long[]> stack: stacks ) {
+        out.append( stack.getKey() ).append( ' ' ).append( stack.getValue()[ 0 ] ).append( '\n' );
+      }
+      return out.toString();
+    }
+
+  }
+
+}
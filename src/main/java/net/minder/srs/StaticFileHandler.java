@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Serves files below a root directory straight from a FileChannel, outside of the Jersey entity pipeline.
+public class StaticFileHandler implements HttpHandler {
+
+  private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+  private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone( ZoneOffset.UTC );
+
+  private final Path root;
+  private final Map<String,String> contentTypes = new ConcurrentHashMap<>();
+
+  public StaticFileHandler( File root ) {
+    this.root = root.toPath().toAbsolutePath().normalize();
+  }
+
+  @Override
+  public void handle( HttpExchange exchange ) throws IOException {
+    try {
+      String method = exchange.getRequestMethod();
+      boolean head = "HEAD".equals( method );
+      if( !head && !"GET".equals( method ) ) {
+        exchange.getResponseHeaders().set( "Allow", "GET, HEAD" );
+        exchange.sendResponseHeaders( 405, -1 );
+        return;
+      }
+
+      Path file = resolve( exchange );
+      if( file == null ) {
+        exchange.sendResponseHeaders( 404, -1 );
+        return;
+      }
+
+      long length = Files.size( file );
+      long modified = Files.getLastModifiedTime( file ).toMillis() / 1000 * 1000;
+      String lastModified = HTTP_DATE.format( Instant.ofEpochMilli( modified ) );
+
+      Headers request = exchange.getRequestHeaders();
+      Headers response = exchange.getResponseHeaders();
+      response.set( "Accept-Ranges", "bytes" );
+      response.set( "Last-Modified", lastModified );
+
+      Long since = parseDate( request.getFirst( "If-Modified-Since" ) );
+      if( since != null && modified <= since ) {
+        exchange.sendResponseHeaders( 304, -1 );
+        return;
+      }
+
+      response.set( "Content-Type", getContentType( file ) );
+
+      long start = 0;
+      long count = length;
+      int status = 200;
+      String range = request.getFirst( "Range" );
+      String ifRange = request.getFirst( "If-Range" );
+      if( range != null && ( ifRange == null || ifRange.equals( lastModified ) ) ) {
+        long[] bounds = parseRange( range, length );
+        if( bounds != null && bounds.length == 0 ) {
+          response.set( "Content-Range", "bytes */" + length );
+          exchange.sendResponseHeaders( 416, -1 );
+          return;
+        } else if( bounds != null ) {
+          start = bounds[ 0 ];
+          count = bounds[ 1 ] - bounds[ 0 ] + 1;
+          status = 206;
+          response.set( "Content-Range", "bytes " + bounds[ 0 ] + "-" + bounds[ 1 ] + "/" + length );
+        }
+      }
+
+      if( head ) {
+        response.set( "Content-Length", Long.toString( count ) );
+        exchange.sendResponseHeaders( status, -1 );
+        return;
+      }
+
+      exchange.sendResponseHeaders( status, count == 0 ? -1 : count );
+      if( count > 0 ) {
+        transfer( file, start, count, exchange.getResponseBody() );
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private Path resolve( HttpExchange exchange ) {
+    String path = exchange.getRequestURI().getPath();
+    String base = exchange.getHttpContext().getPath();
+    // The server matches contexts by plain string prefix, so /files also gets /filessystem.
+    if( path == null || !path.startsWith( base )
+        || ( !base.endsWith( "/" ) && path.length() > base.length() && path.charAt( base.length() ) != '/' ) ) {
+      return null;
+    }
+    String name = path.substring( base.length() );
+    while( name.startsWith( "/" ) ) {
+      name = name.substring( 1 );
+    }
+    if( name.isEmpty() ) {
+      return null;
+    }
+    Path file = root.resolve( name ).normalize();
+    if( !file.startsWith( root ) || !Files.isRegularFile( file ) || !Files.isReadable( file ) ) {
+      return null;
+    }
+    return file;
+  }
+
+  private static void transfer( Path file, long start, long count, OutputStream out ) throws IOException {
+    try( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+      WritableByteChannel target = Channels.newChannel( out );
+      long position = start;
+      long remaining = count;
+      while( remaining > 0 ) {
+        long n = channel.transferTo( position, remaining, target );
+        if( n <= 0 ) {
+          break;
+        }
+        position += n;
+        remaining -= n;
+      }
+    }
+  }
+
+  private String getContentType( Path file ) {
+    String name = file.getFileName().toString();
+    int dot = name.lastIndexOf( '.' );
+    String ext = dot < 0 ? "" : name.substring( dot + 1 ).toLowerCase();
+    String type = contentTypes.get( ext );
+    if( type == null ) {
+      try {
+        type = Files.probeContentType( file );
+      } catch( IOException e ) {
+        // Ignore and fall back to the file name map.
+      }
+      if( type == null ) {
+        type = URLConnection.getFileNameMap().getContentTypeFor( name );
+      }
+      if( type == null ) {
+        type = DEFAULT_CONTENT_TYPE;
+      }
+      contentTypes.put( ext, type );
+    }
+    return type;
+  }
+
+  private static Long parseDate( String value ) {
+    if( value == null ) {
+      return null;
+    }
+    try {
+      return ZonedDateTime.parse( value, DateTimeFormatter.RFC_1123_DATE_TIME ).toInstant().toEpochMilli();
+    } catch( DateTimeParseException e ) {
+      return null;
+    }
+  }
+
+  // Returns the inclusive first and last byte of a single byte range, an empty array if the range is not
+  // satisfiable, or null if the header should be ignored (malformed or multiple ranges).
+  static long[] parseRange( String range, long length ) {
+    if( !range.startsWith( "bytes=" ) || range.indexOf( ',' ) >= 0 ) {
+      return null;
+    }
+    String spec = range.substring( 6 ).trim();
+    int dash = spec.indexOf( '-' );
+    if( dash < 0 ) {
+      return null;
+    }
+    long start, end;
+    try {
+      String first = spec.substring( 0, dash ).trim();
+      String last = spec.substring( dash + 1 ).trim();
+      if( first.isEmpty() ) {
+        long suffix = Long.parseLong( last );
+        if( suffix <= 0 ) {
+          return new long[0];
+        }
+        start = Math.max( 0, length - suffix );
+        end = length - 1;
+      } else {
+        start = Long.parseLong( first );
+        end = last.isEmpty() ? length - 1 : Long.parseLong( last );
+      }
+    } catch( NumberFormatException e ) {
+      return null;
+    }
+    if( start >= length ) {
+      return new long[0];
+    }
+    if( start < 0 || end < start ) {
+      return null;
+    }
+    return new long[]{ start, Math.min( end, length - 1 ) };
+  }
+
+}
@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+// The memory and CPU limits of the control group this JVM runs in.
+// Children started by JavaProcessPreBuilder inherit the control group of the parent so these limits apply to them too.
+// Both cgroup v2 (memory.max, cpu.max) and v1 (memory.limit_in_bytes, cpu.cfs_quota_us) are read.
+// The effective limit is the smallest one found walking from the process' own group up to the root.
+public final class CgroupLimits {
+
+  public static final CgroupLimits UNLIMITED = new CgroupLimits( -1, -1 );
+
+  // cgroup v1 reports "no limit" as a page aligned Long.MAX_VALUE.
+  private static final long V1_UNLIMITED = 1L << 60;
+
+  private static CgroupLimits detected = null;
+
+  private final long memory;
+  private final double cpus;
+
+  // A memory limit in bytes and a CPU limit in cores, either may be -1 for no limit.
+  public CgroupLimits( long memory, double cpus ) {
+    this.memory = memory > 0 ? memory : -1;
+    this.cpus = cpus > 0 ? cpus : -1;
+  }
+
+  public long getMemoryLimit() {
+    return memory;
+  }
+
+  public double getCpuLimit() {
+    return cpus;
+  }
+
+  public boolean hasMemoryLimit() {
+    return memory > 0;
+  }
+
+  public boolean hasCpuLimit() {
+    return cpus > 0;
+  }
+
+  public static synchronized CgroupLimits detect() {
+    if( detected == null ) {
+      List<String> lines;
+      try {
+        lines = Files.readAllLines( Paths.get( "/proc/self/cgroup" ), StandardCharsets.US_ASCII );
+      } catch( IOException | SecurityException e ) {
+        lines = Collections.emptyList();
+      }
+      detected = detect( Paths.get( "/sys/fs/cgroup" ), lines );
+    }
+    return detected;
+  }
+
+  static CgroupLimits detect( Path root, List<String> cgroups ) {
+    if( Files.exists( root.resolve( "cgroup.controllers" ) ) ) {
+      String group = findGroup( cgroups, "" );
+      return new CgroupLimits(
+          minMemory( root, group, "memory.max" ),
+          minCpus( root, group, "cpu.max", null ) );
+    } else {
+      return new CgroupLimits(
+          minMemory( root.resolve( "memory" ), findGroup( cgroups, "memory" ), "memory.limit_in_bytes" ),
+          minCpus( root.resolve( "cpu" ), findGroup( cgroups, "cpu" ), "cpu.cfs_quota_us", "cpu.cfs_period_us" ) );
+    }
+  }
+
+  // Lines look like "hierarchy-id:controller,controller:/path", v2 uses an empty controller list.
+  private static String findGroup( List<String> cgroups, String controller ) {
+    for( String line: cgroups ) {
+      String[] parts = line.split( ":", 3 );
+      if( parts.length == 3 ) {
+        for( String name: parts[ 1 ].split( "," ) ) {
+          if( name.equals( controller ) ) {
+            return parts[ 2 ];
+          }
+        }
+      }
+    }
+    return "/";
+  }
+
+  // Inside a container the group path from /proc/self/cgroup may not exist below the mount, in which case only the
+  // mount root is left to check.
+  private static long minMemory( Path mount, String group, String file ) {
+    long min = -1;
+    for( Path dir = resolve( mount, group ); dir != null; dir = parent( mount, dir ) ) {
+      long value = parseLimit( read( dir.resolve( file ) ) );
+      if( value > 0 && ( min < 0 || value < min ) ) {
+        min = value;
+      }
+    }
+    return min;
+  }
+
+  private static double minCpus( Path mount, String group, String file, String periodFile ) {
+    double min = -1;
+    for( Path dir = resolve( mount, group ); dir != null; dir = parent( mount, dir ) ) {
+      String quota = read( dir.resolve( file ) );
+      String period = periodFile == null ? null : read( dir.resolve( periodFile ) );
+      double value = parseCpus( quota, period );
+      if( value > 0 && ( min < 0 || value < min ) ) {
+        min = value;
+      }
+    }
+    return min;
+  }
+
+  private static Path resolve( Path mount, String group ) {
+    String relative = group.startsWith( "/" ) ? group.substring( 1 ) : group;
+    Path dir = relative.isEmpty() ? mount : mount.resolve( relative );
+    return Files.isDirectory( dir ) ? dir : mount;
+  }
+
+  private static Path parent( Path mount, Path dir ) {
+    return dir.equals( mount ) ? null : dir.getParent();
+  }
+
+  private static String read( Path file ) {
+    try {
+      return new String( Files.readAllBytes( file ), StandardCharsets.US_ASCII ).trim();
+    } catch( IOException | SecurityException e ) {
+      return null;
+    }
+  }
+
+  static long parseLimit( String value ) {
+    if( value == null || value.isEmpty() || value.equals( "max" ) ) {
+      return -1;
+    }
+    try {
+      long limit = Long.parseLong( value );
+      return limit <= 0 || limit >= V1_UNLIMITED ? -1 : limit;
+    } catch( NumberFormatException e ) {
+      return -1;
+    }
+  }
+
+  // v2 cpu.max holds "quota period" in one file, v1 splits them between cfs_quota_us and cfs_period_us.
+  static double parseCpus( String quota, String period ) {
+    if( quota == null ) {
+      return -1;
+    }
+    if( period == null ) {
+      String[] parts = quota.split( "\\s+" );
+      quota = parts[ 0 ];
+      period = parts.length > 1 ? parts[ 1 ] : "100000";
+    }
+    long q = parseLimit( quota );
+    long p = parseLimit( period );
+    return q > 0 && p > 0 ? (double)q / p : -1;
+  }
+
+  @Override
+  public String toString() {
+    return "memory=" + memory + " cpus=" + cpus;
+  }
+
+}
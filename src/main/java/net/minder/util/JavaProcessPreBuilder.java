@@ -17,6 +17,7 @@
  */
 package net.minder.util;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -24,11 +25,15 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JavaProcessPreBuilder {
 
   private static List<String> EMPTY_LIST = Collections.unmodifiableList( Collections.EMPTY_LIST );
   private static String NULL_PROP_VALUE = new String("NULL");
+  // The archives a running child is dumping, so children started before it exits don't write the same file.
+  private static final Set<String> DUMPING = ConcurrentHashMap.newKeySet();
 
   private String jvm = null;
   private ArrayList<String> opts = null;
@@ -40,6 +45,12 @@ public class JavaProcessPreBuilder {
   private Boolean inheritIo = null;
   private Integer debugPort = null;
   private Boolean debugWait = null;
+  private JvmProfile profile = null;
+  private CgroupLimits limits = null;
+  private int children = 1;
+  private File classDataArchive = null;
+  private OutputCapture capture = null;
+  private ProcessSampler sampler = null;
 
   private static String getCurrentClassPath() {
     return System.getProperty( "java.class.path" );
@@ -174,6 +185,54 @@ public class JavaProcessPreBuilder {
     return args;
   }
 
+  public JavaProcessPreBuilder profile( JvmProfile profile ) {
+    return profile( profile, null );
+  }
+
+  public JavaProcessPreBuilder profile( JvmProfile profile, CgroupLimits limits ) {
+    return profile( profile, limits, 1 );
+  }
+
+  // Sizes the child for one of children processes sharing the limits.
+  public JavaProcessPreBuilder profile( JvmProfile profile, CgroupLimits limits, int children ) {
+    this.profile = profile;
+    this.limits = limits;
+    this.children = children;
+    return this;
+  }
+
+  // Application class data sharing: the first child dumps its loaded classes to the archive on exit
+  // and later children map them from it. Children started while that one runs use no archive.
+  // The archive is only valid for the same JVM and class path, and the class path may only contain jars.
+  public JavaProcessPreBuilder classDataArchive( File archive ) {
+    this.classDataArchive = archive;
+    return this;
+  }
+
+  // The arguments the next start() would use, it may find that another child has started dumping since.
+  public List<String> getProfileArgs() {
+    return getProfileArgs( classDataArchive != null && !DUMPING.contains( getArchiveKey() ) );
+  }
+
+  private List<String> getProfileArgs( boolean dump ) {
+    ArrayList<String> args = new ArrayList<>();
+    if( profile != null ) {
+      args.addAll( profile.getArgs( limits == null ? CgroupLimits.detect() : limits, children ) );
+    }
+    if( classDataArchive != null ) {
+      if( classDataArchive.isFile() ) {
+        args.add( "-XX:SharedArchiveFile=" + classDataArchive.getPath() );
+      } else if( dump ) {
+        args.add( "-XX:ArchiveClassesAtExit=" + classDataArchive.getPath() );
+      }
+    }
+    return args;
+  }
+
+  private String getArchiveKey() {
+    return classDataArchive.getAbsoluteFile().toPath().normalize().toString();
+  }
+
   public JavaProcessPreBuilder prop( String name ) {
     return prop( name, null );
   }
@@ -272,11 +331,34 @@ public class JavaProcessPreBuilder {
     return Boolean.TRUE.equals( inheritIo );
   }
 
+  public JavaProcessPreBuilder capture( OutputCapture capture ) {
+    this.capture = capture;
+    return this;
+  }
+
+  public OutputCapture getCapture() {
+    return capture;
+  }
+
+  public JavaProcessPreBuilder sample( ProcessSampler sampler ) {
+    this.sampler = sampler;
+    return this;
+  }
+
+  public ProcessSampler getSampler() {
+    return sampler;
+  }
+
   public List<String> getCmdArgs() {
+    return getCmdArgs( getProfileArgs() );
+  }
+
+  private List<String> getCmdArgs( List<String> profileArgs ) {
     if( getMainClassName() == null ) { throw new IllegalArgumentException( "No main class name provided." ); }
     ArrayList<String> args = new ArrayList();
     args.add( getJvmPathArg() );
     args.addAll( getDbgArgs() );
+    args.addAll( profileArgs );
     args.addAll( getJvmArgs() );
     args.addAll( getExtArgs() );
     args.addAll( getPropArgs() );
@@ -287,14 +369,53 @@ public class JavaProcessPreBuilder {
   }
 
   public ProcessBuilder prepare() {
+    return prepare( getCmdArgs() );
+  }
+
+  private ProcessBuilder prepare( List<String> cmdArgs ) {
     ProcessBuilder pb = new ProcessBuilder();
-    if( getInheritIO() ) { pb.inheritIO(); }
-    pb.command( getCmdArgs() );
+    if( getInheritIO() && capture == null ) { pb.inheritIO(); }
+    pb.command( cmdArgs );
     return pb;
   }
 
   public Process start() throws IOException {
-    return prepare().start();
+    if( capture != null ) {
+      capture.checkAttachable();
+    }
+    // Only the child that claims the archive dumps it, the claim ends when that child exits.
+    final String archive = classDataArchive != null && !classDataArchive.isFile() && DUMPING.add( getArchiveKey() )
+        ? getArchiveKey() : null;
+    Process process;
+    try {
+      process = prepare( getCmdArgs( getProfileArgs( archive != null ) ) ).start();
+    } catch( IOException | RuntimeException e ) {
+      if( archive != null ) {
+        DUMPING.remove( archive );
+      }
+      throw e;
+    }
+    if( archive != null ) {
+      process.onExit().thenRun( new Runnable() {
+        @Override
+        public void run() {
+          DUMPING.remove( archive );
+        }
+      } );
+    }
+    if( capture != null ) {
+      // Another start() may have attached the capture since it was checked, don't leave the child running.
+      try {
+        capture.attach( process );
+      } catch( RuntimeException e ) {
+        process.destroyForcibly();
+        throw e;
+      }
+    }
+    if( sampler != null ) {
+      sampler.watch( process );
+    }
+    return process;
   }
 
 }
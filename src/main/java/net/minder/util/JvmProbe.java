@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import com.sun.tools.attach.VirtualMachine;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads heap and GC stats from another local JVM.
+// The attach API starts the local management agent in the target and the stats are then read over JMX.
+final class JvmProbe {
+
+  private final JMXConnector connector;
+  private final MemoryMXBean memory;
+  private final List<GarbageCollectorMXBean> collectors = new ArrayList<>();
+
+  private JvmProbe( JMXConnector connector ) throws IOException {
+    this.connector = connector;
+    MBeanServerConnection connection = connector.getMBeanServerConnection();
+    memory = ManagementFactory.newPlatformMXBeanProxy(
+        connection, ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class );
+    try {
+      ObjectName pattern = new ObjectName( ManagementFactory.GARBAGE_COLLECTOR_MXBEAN_DOMAIN_TYPE + ",*" );
+      for( ObjectName name: connection.queryNames( pattern, null ) ) {
+        collectors.add( ManagementFactory.newPlatformMXBeanProxy(
+            connection, name.getCanonicalName(), GarbageCollectorMXBean.class ) );
+      }
+    } catch( javax.management.MalformedObjectNameException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  static JvmProbe attach( long pid ) throws Exception {
+    VirtualMachine vm = VirtualMachine.attach( Long.toString( pid ) );
+    String address;
+    try {
+      address = vm.startLocalManagementAgent();
+    } finally {
+      vm.detach();
+    }
+    JMXConnector connector = JMXConnectorFactory.connect( new JMXServiceURL( address ) );
+    try {
+      return new JvmProbe( connector );
+    } catch( IOException | RuntimeException e ) {
+      connector.close();
+      throw e;
+    }
+  }
+
+  // Returns heap used, heap committed, total collection count and total collection time in milliseconds.
+  long[] read() {
+    MemoryUsage heap = memory.getHeapMemoryUsage();
+    long count = 0;
+    long millis = 0;
+    for( GarbageCollectorMXBean collector: collectors ) {
+      count += Math.max( 0, collector.getCollectionCount() );
+      millis += Math.max( 0, collector.getCollectionTime() );
+    }
+    return new long[]{ heap.getUsed(), heap.getCommitted(), count, millis };
+  }
+
+  void close() {
+    try {
+      connector.close();
+    } catch( IOException e ) {
+      // Ignore.
+    }
+  }
+
+}
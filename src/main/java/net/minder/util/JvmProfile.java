@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Named sets of JVM flags for children started by JavaProcessPreBuilder.
+// Heap size and active processor count are derived from the cgroup limits so children fit their container.
+// When several children share the limits the memory is divided between them.
+// Profile flags precede any opt() and xarg() flags so explicit options still win.
+public enum JvmProfile {
+
+  // For short lived children: C1 only, serial GC and a heap of half the memory share.
+  // Pair with JavaProcessPreBuilder.classDataArchive() to also share the application's classes.
+  STARTUP {
+    @Override
+    List<String> getArgs( CgroupLimits limits, int processors, int children ) {
+      List<String> args = new ArrayList<>();
+      args.add( "-XX:TieredStopAtLevel=1" );
+      args.add( "-XX:+UseSerialGC" );
+      if( limits.hasMemoryLimit() ) {
+        args.add( "-Xmx" + heapMegabytes( limits.getMemoryLimit() / children, 50 ) + "m" );
+      }
+      addProcessorCount( args, limits );
+      return args;
+    }
+  },
+
+  // For long running children: G1 when there are at least two cores and 2GB, otherwise the parallel collector,
+  // with a fixed heap of three quarters of the memory share.
+  THROUGHPUT {
+    @Override
+    List<String> getArgs( CgroupLimits limits, int processors, int children ) {
+      List<String> args = new ArrayList<>();
+      int cpus = limits.hasCpuLimit() ? processorCount( limits ) : processors;
+      boolean large = !limits.hasMemoryLimit() || limits.getMemoryLimit() / children >= G1_MIN_MEMORY;
+      args.add( cpus >= 2 && large ? "-XX:+UseG1GC" : "-XX:+UseParallelGC" );
+      if( limits.hasMemoryLimit() ) {
+        long heap = heapMegabytes( limits.getMemoryLimit() / children, 75 );
+        args.add( "-Xms" + heap + "m" );
+        args.add( "-Xmx" + heap + "m" );
+      }
+      addProcessorCount( args, limits );
+      return args;
+    }
+  };
+
+  private static final long G1_MIN_MEMORY = 2L * 1024 * 1024 * 1024;
+  private static final long MIN_HEAP_MEGABYTES = 16;
+
+  public List<String> getArgs( CgroupLimits limits ) {
+    return getArgs( limits, 1 );
+  }
+
+  // For one of children processes expected to run at once under the same limits.
+  public List<String> getArgs( CgroupLimits limits, int children ) {
+    return getArgs( limits, Runtime.getRuntime().availableProcessors(), Math.max( 1, children ) );
+  }
+
+  abstract List<String> getArgs( CgroupLimits limits, int processors, int children );
+
+  private static long heapMegabytes( long memory, int percent ) {
+    return Math.max( MIN_HEAP_MEGABYTES, memory / ( 1024 * 1024 ) * percent / 100 );
+  }
+
+  private static int processorCount( CgroupLimits limits ) {
+    return Math.max( 1, (int)Math.ceil( limits.getCpuLimit() ) );
+  }
+
+  private static void addProcessorCount( List<String> args, CgroupLimits limits ) {
+    if( limits.hasCpuLimit() ) {
+      args.add( "-XX:ActiveProcessorCount=" + processorCount( limits ) );
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the most recent lines written to it, discarding the oldest once full.
+public class LineRingBuffer {
+
+  private final String[] lines;
+  private int next = 0;
+  private int size = 0;
+  private long total = 0;
+
+  public LineRingBuffer( int capacity ) {
+    if( capacity < 1 ) {
+      throw new IllegalArgumentException( "Capacity must be positive: " + capacity );
+    }
+    lines = new String[ capacity ];
+  }
+
+  public synchronized void add( String line ) {
+    lines[ next ] = line;
+    next = ( next + 1 ) % lines.length;
+    if( size < lines.length ) {
+      size++;
+    }
+    total++;
+  }
+
+  public synchronized List<String> getLines() {
+    List<String> list = new ArrayList<>( size );
+    int first = ( next - size + lines.length ) % lines.length;
+    for( int i = 0; i < size; i++ ) {
+      list.add( lines[ ( first + i ) % lines.length ] );
+    }
+    return list;
+  }
+
+  public synchronized long getTotal() {
+    return total;
+  }
+
+  public synchronized long getDropped() {
+    return total - size;
+  }
+
+}
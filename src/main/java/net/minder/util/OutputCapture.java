@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Captures the stdout and stderr of a child process started by JavaProcessPreBuilder.
+// Output is drained by a single shared thread into bounded ring buffers, so memory and thread usage stay
+// fixed regardless of how much the children write or how many of them are running.
+public class OutputCapture {
+
+  public enum Stream { STDOUT, STDERR }
+
+  private int maxLines = 1000;
+  private int maxLineLength = 8192;
+  private Charset charset = Charset.defaultCharset();
+  private LineListener listener = null;
+  private File logFile = null;
+  private long logMaxBytes = 0;
+  private int logMaxFiles = 0;
+
+  private Process process = null;
+  private LineRingBuffer stdout = null;
+  private LineRingBuffer stderr = null;
+  private RotatingLogWriter log = null;
+  private CountDownLatch drained = new CountDownLatch( 2 );
+
+  public OutputCapture lines( int maxLines ) {
+    this.maxLines = maxLines;
+    return this;
+  }
+
+  public OutputCapture lineLength( int maxLineLength ) {
+    this.maxLineLength = maxLineLength;
+    return this;
+  }
+
+  public OutputCapture charset( Charset charset ) {
+    this.charset = charset;
+    return this;
+  }
+
+  public OutputCapture listener( LineListener listener ) {
+    this.listener = listener;
+    return this;
+  }
+
+  public OutputCapture logFile( File file, long maxBytes, int maxFiles ) {
+    this.logFile = file;
+    this.logMaxBytes = maxBytes;
+    this.logMaxFiles = maxFiles;
+    return this;
+  }
+
+  synchronized void checkAttachable() {
+    if( this.process != null ) {
+      throw new IllegalStateException( "Output capture is already attached to a process." );
+    }
+  }
+
+  synchronized void attach( Process process ) {
+    checkAttachable();
+    this.process = process;
+    stdout = new LineRingBuffer( maxLines );
+    stderr = new LineRingBuffer( maxLines );
+    if( logFile != null ) {
+      log = new RotatingLogWriter( logFile, logMaxBytes, logMaxFiles );
+    }
+    OutputDrainer drainer = OutputDrainer.getInstance();
+    drainer.register( process, process.getInputStream(), maxLineLength, charset, new StreamHandler( Stream.STDOUT, stdout ) );
+    drainer.register( process, process.getErrorStream(), maxLineLength, charset, new StreamHandler( Stream.STDERR, stderr ) );
+  }
+
+  public synchronized Process getProcess() {
+    return process;
+  }
+
+  public List<String> getStdout() {
+    LineRingBuffer buffer = getBuffer( Stream.STDOUT );
+    return buffer == null ? Collections.<String>emptyList() : buffer.getLines();
+  }
+
+  public List<String> getStderr() {
+    LineRingBuffer buffer = getBuffer( Stream.STDERR );
+    return buffer == null ? Collections.<String>emptyList() : buffer.getLines();
+  }
+
+  public long getLineCount( Stream stream ) {
+    LineRingBuffer buffer = getBuffer( stream );
+    return buffer == null ? 0 : buffer.getTotal();
+  }
+
+  public boolean awaitDrained( long timeout, TimeUnit unit ) throws InterruptedException {
+    return drained.await( timeout, unit );
+  }
+
+  private synchronized LineRingBuffer getBuffer( Stream stream ) {
+    return stream == Stream.STDOUT ? stdout : stderr;
+  }
+
+  private class StreamHandler implements OutputDrainer.Handler {
+
+    private final Stream stream;
+    private final LineRingBuffer buffer;
+    private final String prefix;
+
+    private StreamHandler( Stream stream, LineRingBuffer buffer ) {
+      this.stream = stream;
+      this.buffer = buffer;
+      this.prefix = stream == Stream.STDERR ? "[stderr] " : "";
+    }
+
+    @Override
+    public void line( String line ) {
+      buffer.add( line );
+      if( log != null ) {
+        byte[] bytes = ( prefix + line + "\n" ).getBytes( charset );
+        try {
+          log.write( bytes, 0, bytes.length );
+        } catch( IOException e ) {
+          // Ignore, the ring buffer still has the line.
+        }
+      }
+      if( listener != null ) {
+        listener.onLine( stream, line );
+      }
+    }
+
+    @Override
+    public void flush() {
+      if( log != null ) {
+        try {
+          log.flush();
+        } catch( IOException e ) {
+          // Ignore.
+        }
+      }
+    }
+
+    @Override
+    public void end() {
+      drained.countDown();
+      if( drained.getCount() == 0 && log != null ) {
+        try {
+          log.close();
+        } catch( IOException e ) {
+          // Ignore.
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Drains the output pipes of every captured child process from a single daemon thread.
+// Streams are polled with available() so that no read ever blocks and a quiet child costs nothing but a poll.
+final class OutputDrainer implements Runnable {
+
+  private static final long MIN_IDLE_MILLIS = 1;
+  private static final long MAX_IDLE_MILLIS = 50;
+
+  private static OutputDrainer instance = null;
+
+  private final List<Source> sources = new ArrayList<>();
+  private final byte[] buffer = new byte[ 8192 ];
+  private Thread thread = null;
+
+  interface Handler {
+    void line( String line );
+    void flush();
+    void end();
+  }
+
+  static synchronized OutputDrainer getInstance() {
+    if( instance == null ) {
+      instance = new OutputDrainer();
+    }
+    return instance;
+  }
+
+  synchronized void register( Process process, InputStream in, int maxLineLength, Charset charset, Handler handler ) {
+    sources.add( new Source( process, in, maxLineLength, charset, handler ) );
+    if( thread == null ) {
+      thread = new Thread( this, "process-output-drainer" );
+      thread.setDaemon( true );
+      thread.start();
+    }
+  }
+
+  @Override
+  public void run() {
+    long idle = MIN_IDLE_MILLIS;
+    List<Source> active = new ArrayList<>();
+    while( true ) {
+      synchronized( this ) {
+        if( sources.isEmpty() ) {
+          thread = null;
+          return;
+        }
+        active.clear();
+        active.addAll( sources );
+      }
+      boolean progress = false;
+      for( Source source: active ) {
+        progress |= source.drain( buffer );
+        if( source.done ) {
+          synchronized( this ) {
+            sources.remove( source );
+          }
+        }
+      }
+      if( progress ) {
+        idle = MIN_IDLE_MILLIS;
+      } else {
+        for( Source source: active ) {
+          source.flush();
+        }
+        try {
+          Thread.sleep( idle );
+        } catch( InterruptedException e ) {
+          // Ignore.
+        }
+        idle = Math.min( idle * 2, MAX_IDLE_MILLIS );
+      }
+    }
+  }
+
+  private static class Source {
+
+    private final Process process;
+    private final InputStream in;
+    private final Charset charset;
+    private final Handler handler;
+    private final byte[] line;
+    private int length = 0;
+    private boolean dirty = false;
+    private boolean done = false;
+
+    private Source( Process process, InputStream in, int maxLineLength, Charset charset, Handler handler ) {
+      this.process = process;
+      this.in = in;
+      this.charset = charset;
+      this.handler = handler;
+      this.line = new byte[ maxLineLength ];
+    }
+
+    private boolean drain( byte[] buffer ) {
+      try {
+        boolean alive = process.isAlive();
+        int available = in.available();
+        if( available > 0 ) {
+          int n = in.read( buffer, 0, Math.min( available, buffer.length ) );
+          if( n < 0 ) {
+            end();
+          } else {
+            consume( buffer, n );
+            dirty = true;
+          }
+          return true;
+        } else if( !alive ) {
+          end();
+        }
+      } catch( IOException e ) {
+        end();
+      }
+      return false;
+    }
+
+    private void consume( byte[] buffer, int n ) {
+      for( int i = 0; i < n; i++ ) {
+        byte b = buffer[ i ];
+        if( b == '\n' ) {
+          emit();
+        } else {
+          // Lines longer than the buffer are split rather than truncated, so no output is lost.
+          if( length == line.length ) {
+            emit();
+          }
+          line[ length++ ] = b;
+        }
+      }
+    }
+
+    private void emit() {
+      int end = length;
+      if( end > 0 && line[ end - 1 ] == '\r' ) {
+        end--;
+      }
+      String s = new String( line, 0, end, charset );
+      length = 0;
+      try {
+        handler.line( s );
+      } catch( RuntimeException e ) {
+        // Never let a misbehaving handler stop the drainer.
+      }
+    }
+
+    private void flush() {
+      if( dirty ) {
+        dirty = false;
+        handler.flush();
+      }
+    }
+
+    private void end() {
+      if( length > 0 ) {
+        emit();
+      }
+      done = true;
+      flush();
+      try {
+        in.close();
+      } catch( IOException e ) {
+        // Ignore.
+      }
+      handler.end();
+    }
+
+  }
+
+}
@@ -18,25 +18,21 @@
 package net.minder.util;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.URI;
+import java.util.concurrent.TimeUnit;
 
 public class PortUtils {
 
+  // Asks the OS for an ephemeral port so concurrent callers don't race for the same one.
   public static int getFreePort() throws IOException {
-    int port = 9999;
-    try {
-      ServerSocket socket = new ServerSocket( port );
-      socket.close();
-    } catch( IOException e ) {
-      if( port > 1024 ) {
-        port--;
-      } else {
-        throw e;
-      }
+    try( ServerSocket socket = new ServerSocket() ) {
+      socket.setReuseAddress( true );
+      socket.bind( new InetSocketAddress( 0 ) );
+      return socket.getLocalPort();
     }
-    return port;
   }
 
   public static void awaitOpenPort( URI uri ) {
@@ -56,4 +52,20 @@ public class PortUtils {
     }
   }
 
+  public static boolean awaitOpenPort( URI uri, long timeout, TimeUnit unit ) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos( timeout );
+    while( true ) {
+      try {
+        Socket s = new Socket( uri.getHost(), uri.getPort() );
+        s.close();
+        return true;
+      } catch( IOException e ) {
+        if( System.nanoTime() - deadline >= 0 ) {
+          return false;
+        }
+        Thread.sleep( 25 );
+      }
+    }
+  }
+
 }
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+// A single point in time reading of a child process taken by ProcessSampler.
+// Values that could not be read are reported as -1.
+// The JVM values are only present when the sampler was asked to attach to JVM children.
+public final class ProcessSample {
+
+  private final long time;
+  private final long cpuMillis;
+  private final double cpuLoad;
+  private final long rssBytes;
+  private final int threads;
+  private final int fds;
+  private final long heapUsed;
+  private final long heapCommitted;
+  private final long gcCount;
+  private final long gcMillis;
+
+  ProcessSample( long time, long cpuMillis, double cpuLoad, long rssBytes, int threads, int fds,
+      long heapUsed, long heapCommitted, long gcCount, long gcMillis ) {
+    this.time = time;
+    this.cpuMillis = cpuMillis;
+    this.cpuLoad = cpuLoad;
+    this.rssBytes = rssBytes;
+    this.threads = threads;
+    this.fds = fds;
+    this.heapUsed = heapUsed;
+    this.heapCommitted = heapCommitted;
+    this.gcCount = gcCount;
+    this.gcMillis = gcMillis;
+  }
+
+  // Wall clock time of the sample in milliseconds.
+  public long getTime() {
+    return time;
+  }
+
+  // Total user and system CPU time consumed by the process so far.
+  public long getCpuMillis() {
+    return cpuMillis;
+  }
+
+  // CPU time used since the previous sample divided by the elapsed time, 1.0 being one full core.
+  public double getCpuLoad() {
+    return cpuLoad;
+  }
+
+  public long getRssBytes() {
+    return rssBytes;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  public int getFds() {
+    return fds;
+  }
+
+  public long getHeapUsed() {
+    return heapUsed;
+  }
+
+  public long getHeapCommitted() {
+    return heapCommitted;
+  }
+
+  public long getGcCount() {
+    return gcCount;
+  }
+
+  public long getGcMillis() {
+    return gcMillis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format( "cpu=%dms load=%.2f rss=%d threads=%d fds=%d heap=%d/%d gc=%d/%dms",
+        cpuMillis, cpuLoad, rssBytes, threads, fds, heapUsed, heapCommitted, gcCount, gcMillis );
+  }
+
+}
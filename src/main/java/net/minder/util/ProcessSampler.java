@@ -0,0 +1,325 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Periodically samples CPU, RSS, thread and file descriptor counts of child processes from /proc/<pid>.
+// All watched processes are sampled by a single daemon thread that exits when nothing is left to watch.
+// Each sample costs two small reads of /proc/<pid>/stat and /proc/<pid>/status plus a listing of /proc/<pid>/fd.
+// When jvm() is enabled the sampler also attaches to each child via the attach API and reads heap and GC stats over JMX.
+// Watches are dropped once their process has exited, the ProcessStats returned by watch() keeps the final samples.
+public class ProcessSampler {
+
+  // The kernel always reports /proc times in USER_HZ units, which is 100 on every mainstream architecture.
+  private static final long CLOCK_TICKS_PER_SECOND = 100;
+  private static final int MAX_ATTACH_ATTEMPTS = 5;
+
+  private long intervalMillis = 1000;
+  private int maxSamples = 600;
+  private boolean jvm = false;
+
+  private final Map<Process,Watch> watches = new LinkedHashMap<>();
+  private final byte[] buffer = new byte[ 4096 ];
+  private Thread thread = null;
+  private boolean closed = false;
+
+  public static boolean isSupported() {
+    return new File( "/proc/self/stat" ).canRead();
+  }
+
+  public ProcessSampler interval( long interval, TimeUnit unit ) {
+    this.intervalMillis = Math.max( 1, unit.toMillis( interval ) );
+    return this;
+  }
+
+  public ProcessSampler samples( int maxSamples ) {
+    this.maxSamples = maxSamples;
+    return this;
+  }
+
+  public ProcessSampler jvm() {
+    this.jvm = true;
+    return this;
+  }
+
+  public synchronized ProcessStats watch( Process process ) {
+    if( closed ) {
+      throw new IllegalStateException( "Process sampler is closed." );
+    }
+    Watch watch = watches.get( process );
+    if( watch == null ) {
+      watch = new Watch( process, new ProcessStats( process, maxSamples ) );
+      watches.put( process, watch );
+    }
+    if( thread == null ) {
+      thread = new Thread( this::run, "process-sampler" );
+      thread.setDaemon( true );
+      thread.start();
+    }
+    return watch.stats;
+  }
+
+  public synchronized ProcessStats getStats( Process process ) {
+    Watch watch = watches.get( process );
+    return watch == null ? null : watch.stats;
+  }
+
+  public synchronized List<ProcessStats> getStats() {
+    List<ProcessStats> list = new ArrayList<>( watches.size() );
+    for( Watch watch: watches.values() ) {
+      list.add( watch.stats );
+    }
+    return list;
+  }
+
+  // Drops the retained samples of a process, stopping its sampling if it is still alive.
+  public synchronized ProcessStats remove( Process process ) {
+    Watch watch = watches.remove( process );
+    if( watch == null ) {
+      return null;
+    }
+    watch.end();
+    return watch.stats;
+  }
+
+  public void close() {
+    List<Watch> list;
+    synchronized( this ) {
+      closed = true;
+      list = new ArrayList<>( watches.values() );
+      if( thread != null ) {
+        thread.interrupt();
+      }
+    }
+    for( Watch watch: list ) {
+      watch.end();
+    }
+  }
+
+  private void run() {
+    List<Watch> active = new ArrayList<>();
+    while( true ) {
+      active.clear();
+      synchronized( this ) {
+        Iterator<Watch> iterator = watches.values().iterator();
+        while( iterator.hasNext() ) {
+          Watch watch = iterator.next();
+          if( watch.stats.isAlive() ) {
+            active.add( watch );
+          } else {
+            iterator.remove();
+          }
+        }
+        if( active.isEmpty() || closed ) {
+          thread = null;
+          return;
+        }
+      }
+      for( Watch watch: active ) {
+        sample( watch );
+      }
+      try {
+        Thread.sleep( intervalMillis );
+      } catch( InterruptedException e ) {
+        synchronized( this ) {
+          thread = null;
+        }
+        return;
+      }
+    }
+  }
+
+  private void sample( Watch watch ) {
+    long now = System.currentTimeMillis();
+    String dir = "/proc/" + watch.pid + "/";
+    String stat = read( dir + "stat" );
+    String status = stat == null ? null : read( dir + "status" );
+    if( stat == null || status == null || !watch.process.isAlive() ) {
+      watch.end();
+      return;
+    }
+    long cpuMillis = parseCpuMillis( stat );
+    double cpuLoad = 0;
+    if( watch.lastTime > 0 && now > watch.lastTime && cpuMillis >= 0 ) {
+      cpuLoad = (double)( cpuMillis - watch.lastCpuMillis ) / ( now - watch.lastTime );
+    }
+    watch.lastTime = now;
+    watch.lastCpuMillis = cpuMillis;
+    long rss = parseStatusValue( status, "VmRSS:" );
+    long threads = parseStatusValue( status, "Threads:" );
+    int fds = countFds( dir + "fd" );
+    long[] jvmStats = jvm ? watch.readJvm() : null;
+    watch.stats.add( new ProcessSample( now, cpuMillis, cpuLoad,
+        rss < 0 ? -1 : rss * 1024, (int)threads, fds,
+        jvmStats == null ? -1 : jvmStats[ 0 ],
+        jvmStats == null ? -1 : jvmStats[ 1 ],
+        jvmStats == null ? -1 : jvmStats[ 2 ],
+        jvmStats == null ? -1 : jvmStats[ 3 ] ) );
+  }
+
+  private String read( String file ) {
+    try( InputStream in = new FileInputStream( file ) ) {
+      int length = 0;
+      int count;
+      while( length < buffer.length && ( count = in.read( buffer, length, buffer.length - length ) ) > 0 ) {
+        length += count;
+      }
+      return new String( buffer, 0, length, StandardCharsets.US_ASCII );
+    } catch( IOException e ) {
+      return null;
+    }
+  }
+
+  // The command name in the second field may contain spaces, so fields are counted from its closing parenthesis.
+  // After it come state (3), ..., utime (14) and stime (15).
+  static long parseCpuMillis( String stat ) {
+    int end = stat.lastIndexOf( ')' );
+    if( end < 0 ) {
+      return -1;
+    }
+    String[] fields = stat.substring( end + 2 ).split( " " );
+    if( fields.length < 13 ) {
+      return -1;
+    }
+    try {
+      long ticks = Long.parseLong( fields[ 11 ] ) + Long.parseLong( fields[ 12 ] );
+      return ticks * 1000 / CLOCK_TICKS_PER_SECOND;
+    } catch( NumberFormatException e ) {
+      return -1;
+    }
+  }
+
+  static long parseStatusValue( String status, String name ) {
+    int start = status.indexOf( name );
+    if( start < 0 ) {
+      return -1;
+    }
+    int i = start + name.length();
+    while( i < status.length() && Character.isWhitespace( status.charAt( i ) ) ) {
+      i++;
+    }
+    long value = 0;
+    boolean digits = false;
+    while( i < status.length() && Character.isDigit( status.charAt( i ) ) ) {
+      value = value * 10 + ( status.charAt( i++ ) - '0' );
+      digits = true;
+    }
+    return digits ? value : -1;
+  }
+
+  private static int countFds( String dir ) {
+    Path path = Paths.get( dir );
+    int count = 0;
+    try( DirectoryStream<Path> stream = Files.newDirectoryStream( path ) ) {
+      for( Path ignored: stream ) {
+        count++;
+      }
+      return count;
+    } catch( IOException | SecurityException e ) {
+      return -1;
+    }
+  }
+
+  private static final class Watch {
+
+    private final Process process;
+    private final long pid;
+    private final ProcessStats stats;
+    private long lastTime = 0;
+    private long lastCpuMillis = 0;
+    private JvmProbe probe = null;
+    private int attachAttempts = 0;
+    private boolean attaching = false;
+
+    private Watch( Process process, ProcessStats stats ) {
+      this.process = process;
+      this.pid = process.pid();
+      this.stats = stats;
+    }
+
+    // A freshly forked JVM may not accept attach yet, so a few attempts are made on later samples.
+    // Attaching can take seconds so it is done on a short lived thread to keep the sampling thread on schedule.
+    private synchronized long[] readJvm() {
+      if( !stats.isAlive() ) {
+        return null;
+      }
+      if( probe == null ) {
+        if( !attaching && attachAttempts < MAX_ATTACH_ATTEMPTS ) {
+          attachAttempts++;
+          attaching = true;
+          Thread attach = new Thread( this::attach, "process-sampler-attach" );
+          attach.setDaemon( true );
+          attach.start();
+        }
+        return null;
+      }
+      try {
+        return probe.read();
+      } catch( Exception e ) {
+        probe.close();
+        probe = null;
+        return null;
+      }
+    }
+
+    private void attach() {
+      JvmProbe attached = null;
+      try {
+        attached = JvmProbe.attach( pid );
+      } catch( Exception | LinkageError e ) {
+        // Retried on a later sample, a missing jdk.attach module just uses up the attempts.
+      } finally {
+        synchronized( this ) {
+          attaching = false;
+          if( attached != null ) {
+            if( stats.isAlive() ) {
+              probe = attached;
+            } else {
+              attached.close();
+            }
+          }
+        }
+      }
+    }
+
+    private synchronized void end() {
+      stats.end();
+      if( probe != null ) {
+        probe.close();
+        probe = null;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The bounded time series and peak values collected by ProcessSampler for one child process.
+// Only the most recent samples are retained, the peaks cover the whole life of the process.
+public final class ProcessStats {
+
+  private final Process process;
+  private final ProcessSample[] samples;
+  private int next = 0;
+  private long total = 0;
+  private boolean alive = true;
+
+  private double peakCpuLoad = -1;
+  private long peakRssBytes = -1;
+  private int peakThreads = -1;
+  private int peakFds = -1;
+  private long peakHeapUsed = -1;
+
+  ProcessStats( Process process, int maxSamples ) {
+    this.process = process;
+    this.samples = new ProcessSample[ Math.max( 1, maxSamples ) ];
+  }
+
+  public Process getProcess() {
+    return process;
+  }
+
+  synchronized void add( ProcessSample sample ) {
+    samples[ next ] = sample;
+    next = ( next + 1 ) % samples.length;
+    total++;
+    peakCpuLoad = Math.max( peakCpuLoad, sample.getCpuLoad() );
+    peakRssBytes = Math.max( peakRssBytes, sample.getRssBytes() );
+    peakThreads = Math.max( peakThreads, sample.getThreads() );
+    peakFds = Math.max( peakFds, sample.getFds() );
+    peakHeapUsed = Math.max( peakHeapUsed, sample.getHeapUsed() );
+  }
+
+  synchronized void end() {
+    alive = false;
+  }
+
+  // True until the sampler has observed that the process exited.
+  public synchronized boolean isAlive() {
+    return alive;
+  }
+
+  // The retained samples, oldest first.
+  public synchronized List<ProcessSample> getSamples() {
+    int count = (int)Math.min( total, samples.length );
+    List<ProcessSample> list = new ArrayList<>( count );
+    int start = ( next - count + samples.length ) % samples.length;
+    for( int i = 0; i < count; i++ ) {
+      list.add( samples[ ( start + i ) % samples.length ] );
+    }
+    return list;
+  }
+
+  public synchronized ProcessSample getLatest() {
+    return total == 0 ? null : samples[ ( next - 1 + samples.length ) % samples.length ];
+  }
+
+  public synchronized long getSampleCount() {
+    return total;
+  }
+
+  public synchronized double getPeakCpuLoad() {
+    return peakCpuLoad;
+  }
+
+  public synchronized long getPeakRssBytes() {
+    return peakRssBytes;
+  }
+
+  public synchronized int getPeakThreads() {
+    return peakThreads;
+  }
+
+  public synchronized int getPeakFds() {
+    return peakFds;
+  }
+
+  public synchronized long getPeakHeapUsed() {
+    return peakHeapUsed;
+  }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Appends to a file and rotates it to file.1 .. file.N once it reaches a size limit or roll() is called.
+public class RotatingLogWriter implements Closeable, Flushable {
+
+  private final File file;
+  private final long maxBytes;
+  private final int maxFiles;
+  private OutputStream out = null;
+  private long size = 0;
+
+  public RotatingLogWriter( File file, long maxBytes, int maxFiles ) {
+    if( maxBytes < 1 ) {
+      throw new IllegalArgumentException( "Max bytes must be positive: " + maxBytes );
+    }
+    this.file = file;
+    this.maxBytes = maxBytes;
+    this.maxFiles = Math.max( 0, maxFiles );
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public synchronized void write( byte[] bytes, int off, int len ) throws IOException {
+    if( out == null ) {
+      open();
+    }
+    if( size > 0 && size + len > maxBytes ) {
+      rotate();
+    }
+    out.write( bytes, off, len );
+    size += len;
+  }
+
+  // Rotates now, for example on a schedule, unless nothing has been written to the current file.
+  public synchronized void roll() throws IOException {
+    if( out == null ) {
+      open();
+    }
+    if( size > 0 ) {
+      rotate();
+    }
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    if( out != null ) {
+      out.flush();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if( out != null ) {
+      out.close();
+      out = null;
+    }
+  }
+
+  private void open() throws IOException {
+    File dir = file.getAbsoluteFile().getParentFile();
+    if( dir != null ) {
+      dir.mkdirs();
+    }
+    size = file.length();
+    out = new BufferedOutputStream( new FileOutputStream( file, true ) );
+  }
+
+  private void rotate() throws IOException {
+    out.close();
+    if( maxFiles == 0 ) {
+      file.delete();
+    } else {
+      new File( file.getPath() + "." + maxFiles ).delete();
+      for( int i = maxFiles - 1; i >= 1; i-- ) {
+        File f = new File( file.getPath() + "." + i );
+        if( f.exists() ) {
+          f.renameTo( new File( file.getPath() + "." + ( i + 1 ) ) );
+        }
+      }
+      file.renameTo( new File( file.getPath() + ".1" ) );
+    }
+    size = 0;
+    out = new BufferedOutputStream( new FileOutputStream( file, false ) );
+  }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class AccessLogTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static void get( URI uri ) throws Exception {
+    HttpURLConnection c = (HttpURLConnection)uri.toURL().openConnection();
+    c.getResponseCode();
+    try( InputStream in = c.getResponseCode() < 400 ? c.getInputStream() : c.getErrorStream() ) {
+      while( in != null && in.read() >= 0 ) {
+        // Drain.
+      }
+    }
+  }
+
+  private static void assertMatches( String line, String regex ) {
+    assertThat( line + " ~ " + regex, line.matches( regex ), is( true ) );
+  }
+
+  private static void await( AccessLog log, long count ) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while( log.getWritten() < count && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 );
+    }
+  }
+
+  @Test
+  public void testServerLog() throws Exception {
+    File file = new File( folder.getRoot(), "access.log" );
+    AccessLog log = new AccessLog( file ).flushInterval( 10, TimeUnit.MILLISECONDS );
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri ).resources( SimpleRestServerSample.class ).accessLog( log ).start();
+    try {
+      server.handler( "/health", BytesHandler.text( "ok" ) );
+      get( uri.resolve( "ping" ) );
+      get( uri.resolve( "health?probe=1" ) );
+      get( uri.resolve( "missing" ) );
+      await( log, 3 );
+    } finally {
+      server.destroy();
+    }
+    assertThat( log.getWritten(), is( 3L ) );
+    assertThat( log.getDropped(), is( 0L ) );
+    List<String> lines = Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 );
+    assertThat( lines, hasSize( 3 ) );
+    String date = "\\[\\d{2}/\\w{3}/\\d{4}:\\d{2}:\\d{2}:\\d{2} \\+0000\\]";
+    assertMatches( lines.get( 0 ), "127\\.0\\.0\\.1 - - " + date + " \"GET /ping HTTP/1\\.1\" 200 5 \\d+" );
+    assertMatches( lines.get( 1 ), ".* \"GET /health\\?probe=1 HTTP/1\\.1\" 200 2 \\d+" );
+    assertMatches( lines.get( 2 ), ".* \"GET /missing HTTP/1\\.1\" 404 .*" );
+  }
+
+  @Test
+  public void testDropWhenFull() throws Exception {
+    File file = new File( folder.getRoot(), "full.log" );
+    AccessLog log = new AccessLog( file ).capacity( 4 ).flushInterval( 1, TimeUnit.MINUTES );
+    log.start();
+    Thread.sleep( 100 );
+    URI uri = new URI( "/full" );
+    InetSocketAddress remote = new InetSocketAddress( "127.0.0.1", 1 );
+    for( int i = 0; i < 10; i++ ) {
+      log.log( "GET", uri, "HTTP/1.1", remote, 200, 1, System.currentTimeMillis(), 1000 );
+    }
+    assertThat( log.getDropped(), is( 6L ) );
+    log.close();
+    assertThat( log.getWritten(), is( 4L ) );
+    assertThat( Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 ), hasSize( 4 ) );
+  }
+
+  @Test
+  public void testDropOnWriteFailure() throws Exception {
+    File file = folder.newFolder( "unwritable.log" );
+    AccessLog log = new AccessLog( file ).flushInterval( 5, TimeUnit.MILLISECONDS );
+    log.start();
+    URI uri = new URI( "/fail" );
+    InetSocketAddress remote = new InetSocketAddress( "127.0.0.1", 1 );
+    for( int i = 0; i < 3; i++ ) {
+      log.log( "GET", uri, "HTTP/1.1", remote, 200, 1, System.currentTimeMillis(), 1000 );
+    }
+    long deadline = System.currentTimeMillis() + 10000;
+    while( log.getDropped() < 3 && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 );
+    }
+    log.close();
+    assertThat( log.getDropped(), is( 3L ) );
+    assertThat( log.getWritten(), is( 0L ) );
+  }
+
+  @Test
+  public void testRotation() throws Exception {
+    File file = new File( folder.getRoot(), "rotate.log" );
+    AccessLog log = new AccessLog( file ).rotate( 300, 2 ).flushInterval( 5, TimeUnit.MILLISECONDS );
+    log.start();
+    URI uri = new URI( "/rotate" );
+    InetSocketAddress remote = new InetSocketAddress( "127.0.0.1", 1 );
+    for( int i = 0; i < 20; i++ ) {
+      log.log( "GET", uri, "HTTP/1.1", remote, 200, i, System.currentTimeMillis(), 1000 );
+      Thread.sleep( 2 );
+    }
+    log.close();
+    assertThat( log.getWritten(), is( 20L ) );
+    assertThat( file.length(), greaterThan( 0L ) );
+    assertThat( new File( file.getPath() + ".1" ).exists(), is( true ) );
+    assertThat( new File( file.getPath() + ".2" ).exists(), is( true ) );
+    assertThat( new File( file.getPath() + ".3" ).exists(), is( false ) );
+
+    file = new File( folder.getRoot(), "timed.log" );
+    log = new AccessLog( file ).rollInterval( 50, TimeUnit.MILLISECONDS ).flushInterval( 5, TimeUnit.MILLISECONDS );
+    log.start();
+    log.log( "GET", uri, "HTTP/1.1", remote, 200, 1, System.currentTimeMillis(), 1000 );
+    Thread.sleep( 200 );
+    log.close();
+    assertThat( new File( file.getPath() + ".1" ).length(), greaterThan( 0L ) );
+  }
+
+}
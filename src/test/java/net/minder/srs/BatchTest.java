@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class BatchTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  @Path( "/counter" )
+  public static class CounterResource {
+
+    static final AtomicInteger count = new AtomicInteger();
+    static final AtomicInteger active = new AtomicInteger();
+    static final AtomicInteger maxActive = new AtomicInteger();
+
+    @GET
+    @Produces( "text/plain" )
+    public String get() throws InterruptedException {
+      int now = active.incrementAndGet();
+      maxActive.accumulateAndGet( now, Math::max );
+      try {
+        Thread.sleep( 200 );
+        return Integer.toString( count.get() );
+      } finally {
+        active.decrementAndGet();
+      }
+    }
+
+    @POST
+    @Produces( "text/plain" )
+    public String increment() {
+      return Integer.toString( count.incrementAndGet() );
+    }
+
+  }
+
+  @Admin
+  @Path( "/admin/op" )
+  public static class AdminResource {
+
+    @GET
+    @Produces( "text/plain" )
+    public String get() {
+      return "ok";
+    }
+
+    @POST
+    @Produces( "text/plain" )
+    public String post() {
+      return "ok";
+    }
+
+  }
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( SimpleRestServerSample.class, CounterResource.class, AdminResource.class ).batch( 3, 10 ).start();
+  }
+
+  @Test
+  public void testSample() throws Exception {
+    JsonNode results = batch( "["
+        + "{\"id\":\"q\",\"path\":\"/query\",\"headers\":{\"Accept\":\"application/json\"}},"
+        + "{\"id\":\"e\",\"method\":\"POST\",\"path\":\"/exec\",\"body\":{\"name\":\"test-name\",\"args\":[]}},"
+        + "{\"id\":\"f\",\"method\":\"POST\",\"path\":\"/exec\",\"body\":{\"name\":\"bad-name\",\"args\":[]}},"
+        + "{\"id\":\"m\",\"path\":\"/missing\"},"
+        + "{\"id\":\"b\",\"method\":\"POST\",\"path\":\"/batch\",\"body\":[]},"
+        + "{\"id\":\"c\",\"method\":\"POST\",\"path\":\"/%62atch\",\"body\":[]},"
+        + "{\"id\":\"d\",\"method\":\"POST\",\"path\":\"/x/../batch\",\"body\":[]}"
+        + "]" );
+    assertThat( results.size(), is( 7 ) );
+    assertThat( results.get( 0 ).get( "id" ).asText(), is( "q" ) );
+    assertThat( results.get( 0 ).get( "status" ).asInt(), is( 200 ) );
+    assertThat( results.get( 0 ).get( "body" ).get( "id" ).asText(), is( "test-id" ) );
+    assertThat( results.get( 1 ).get( "status" ).asInt(), is( 200 ) );
+    assertThat( results.get( 1 ).get( "body" ).asText(), is( "ok" ) );
+    assertThat( results.get( 2 ).get( "status" ).asInt(), is( 517 ) );
+    assertThat( results.get( 2 ).get( "body" ).asText(), containsString( "bad-name" ) );
+    assertThat( results.get( 3 ).get( "status" ).asInt(), is( 404 ) );
+    assertThat( results.get( 4 ).get( "status" ).asInt(), is( 400 ) );
+    assertThat( results.get( 5 ).get( "status" ).asInt(), is( 400 ) );
+    assertThat( results.get( 6 ).get( "status" ).asInt(), is( 400 ) );
+  }
+
+  @Test
+  public void testParallelAndBarriers() throws Exception {
+    CounterResource.count.set( 0 );
+    CounterResource.maxActive.set( 0 );
+    long start = System.currentTimeMillis();
+    JsonNode results = batch( "["
+        + "{\"path\":\"/counter\"},{\"path\":\"/counter\"},{\"path\":\"/counter\"},"
+        + "{\"method\":\"POST\",\"path\":\"/counter\"},"
+        + "{\"path\":\"/counter\"},{\"path\":\"/counter\"},{\"path\":\"/counter\"},{\"path\":\"/counter\"}"
+        + "]" );
+    long elapsed = System.currentTimeMillis() - start;
+    assertThat( results.size(), is( 8 ) );
+    for( int i = 0; i < 8; i++ ) {
+      assertThat( results.get( i ).get( "status" ).asInt(), is( 200 ) );
+      assertThat( results.get( i ).get( "body" ).asText(), is( i < 3 ? "0" : "1" ) );
+    }
+    assertThat( CounterResource.maxActive.get(), is( 3 ) );
+    // Three rounds of 200ms: the first three gets, then three and one after the barrier.
+    assertThat( elapsed, lessThan( 1000L ) );
+  }
+
+  @Test
+  public void testAdminPartsIgnoreMethod() throws Exception {
+    // Parts are dispatched in-process without a client address, whether they run in parallel or as barriers.
+    JsonNode results = batch( "["
+        + "{\"path\":\"/admin/op\"},"
+        + "{\"method\":\"POST\",\"path\":\"/admin/op\"}"
+        + "]" );
+    assertThat( results.get( 0 ).get( "status" ).asInt(), is( 403 ) );
+    assertThat( results.get( 1 ).get( "status" ).asInt(), is( 403 ) );
+  }
+
+  @Test
+  public void testInvalidPath() throws Exception {
+    JsonNode results = batch( "[{\"path\":\"/a b\"},{\"method\":\"POST\",\"path\":\"/%zz\"}]" );
+    assertThat( results.get( 0 ).get( "status" ).asInt(), is( 400 ) );
+    assertThat( results.get( 0 ).get( "body" ).asText(), is( "Invalid batch part path: /a b" ) );
+    assertThat( results.get( 1 ).get( "status" ).asInt(), is( 400 ) );
+  }
+
+  @Test
+  public void testTooLarge() {
+    StringBuilder parts = new StringBuilder( "[" );
+    for( int i = 0; i < 11; i++ ) {
+      parts.append( i == 0 ? "" : "," ).append( "{\"path\":\"/ping\"}" );
+    }
+    Response response = ClientFactory.shared().target( uri ).path( "batch" ).request()
+        .post( Entity.entity( parts.append( "]" ).toString(), MediaType.APPLICATION_JSON_TYPE ) );
+    assertThat( response.getStatus(), is( 400 ) );
+    response.close();
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+  private static JsonNode batch( String parts ) throws Exception {
+    String body = ClientFactory.shared().target( uri ).path( "batch" ).request( MediaType.APPLICATION_JSON_TYPE )
+        .post( Entity.entity( parts, MediaType.APPLICATION_JSON_TYPE ), String.class );
+    return mapper.readTree( body );
+  }
+
+}
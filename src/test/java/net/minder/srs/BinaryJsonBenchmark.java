@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+// Compares payload size and encode/decode time of text JSON, Smile and CBOR for the sample DTOs.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.minder.srs.BinaryJsonBenchmark
+public class BinaryJsonBenchmark {
+
+  private static volatile long sink;
+
+  public static void main( String[] args ) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 1000000;
+
+    SimpleRestServerSample.Input input = new SimpleRestServerSample.Input();
+    input.args = new String[ 32 ];
+    for( int i = 0; i < input.args.length; i++ ) {
+      input.args[ i ] = "test-arg-" + i;
+    }
+    SimpleRestServerSample.Output output = new SimpleRestServerSample.Output();
+
+    ObjectMapper[] mappers = new ObjectMapper[]{
+        new ObjectMapper(), new ObjectMapper( new SmileFactory() ), new ObjectMapper( new CBORFactory() ) };
+    String[] names = new String[]{ "json", "smile", "cbor" };
+
+    for( int round = 0; round < 2; round++ ) {
+      for( int i = 0; i < mappers.length; i++ ) {
+        String label = ( round == 0 ? "warmup " : "" ) + names[ i ];
+        run( label + " input", mappers[ i ], input, SimpleRestServerSample.Input.class, iterations );
+        run( label + " output", mappers[ i ], output, SimpleRestServerSample.Output.class, iterations );
+      }
+    }
+  }
+
+  private static <T> void run( String label, ObjectMapper mapper, T value, Class<T> type, int iterations ) throws Exception {
+    ObjectWriter writer = mapper.writerFor( type );
+    ObjectReader reader = mapper.readerFor( type );
+    byte[] bytes = writer.writeValueAsBytes( value );
+
+    long start = System.nanoTime();
+    for( int i = 0; i < iterations; i++ ) {
+      sink += writer.writeValueAsBytes( value ).length;
+    }
+    long encode = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for( int i = 0; i < iterations; i++ ) {
+      sink += reader.readValue( bytes ) == null ? 0 : 1;
+    }
+    long decode = System.nanoTime() - start;
+
+    System.out.printf( "%-20s %5d bytes %8.1f ns/encode %8.1f ns/decode%n",
+        label, bytes.length, encode / (double)iterations, decode / (double)iterations );
+  }
+
+}
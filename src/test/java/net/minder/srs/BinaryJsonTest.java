@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.fasterxml.jackson.jaxrs.cbor.JacksonCBORProvider;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BinaryJsonTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( SimpleRestServerSample.class ).start();
+  }
+
+  @Test
+  public void testNegotiation() {
+    Client client = ClientBuilder.newClient().register( JacksonSmileProvider.class ).register( JacksonCBORProvider.class );
+
+    for( MediaType type: new MediaType[]{ MediaType.APPLICATION_JSON_TYPE, BinaryJsonModelProcessor.SMILE, BinaryJsonModelProcessor.CBOR } ) {
+      Response response = client.target( uri ).path( "query" ).request( type ).get();
+      assertThat( response.getStatus(), is( 200 ) );
+      assertThat( response.getMediaType().isCompatible( type ), is( true ) );
+      assertThat( response.readEntity( SimpleRestServerSample.Output.class ).id, is( "test-id" ) );
+
+      SimpleRestServerSample.Input input = new SimpleRestServerSample.Input();
+      String status = client.target( uri ).path( "exec" ).request( MediaType.TEXT_PLAIN_TYPE ).post( Entity.entity( input, type ), String.class );
+      assertThat( status, is( "ok" ) );
+    }
+
+    Response response = client.target( uri ).path( "query" ).request().get();
+    assertThat( response.getMediaType().isCompatible( MediaType.APPLICATION_JSON_TYPE ), is( true ) );
+    response.close();
+
+    response = client.target( uri ).path( "ping" ).request( BinaryJsonModelProcessor.SMILE ).get();
+    assertThat( response.getStatus(), is( 406 ) );
+    response.close();
+
+    client.close();
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+}
@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BodyLimitTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+
+  @Path( "/upload" )
+  public static class UploadResource {
+
+    static volatile boolean spilled = false;
+    static volatile SpillBuffer buffer = null;
+
+    @Path( "/limited" )
+    @POST
+    @Consumes( "application/octet-stream" )
+    @Produces( "text/plain" )
+    @BodyLimit( max = 1024, spill = 16 )
+    public String limited( @Context ContainerRequest request, InputStream in ) throws IOException {
+      buffer = (SpillBuffer)request.getProperty( BodyLimitFilter.SPILL_BUFFER );
+      spilled = buffer.isSpilled();
+      return Long.toString( count( in ) );
+    }
+
+    // Fails with an unmapped exception before reading the body, so the response filters don't run.
+    @Path( "/failing" )
+    @POST
+    @Consumes( "application/octet-stream" )
+    @Produces( "text/plain" )
+    @BodyLimit( max = 1024, spill = 10 )
+    public String failing( @Context ContainerRequest request, InputStream in ) {
+      buffer = (SpillBuffer)request.getProperty( BodyLimitFilter.SPILL_BUFFER );
+      spilled = buffer.isSpilled();
+      throw new IllegalStateException( "failing" );
+    }
+
+    @Path( "/streamed" )
+    @POST
+    @Consumes( "application/octet-stream" )
+    @Produces( "text/plain" )
+    @BodyLimit( max = 1024 )
+    public String streamed( InputStream in ) throws IOException {
+      return Long.toString( count( in ) );
+    }
+
+    @Path( "/default" )
+    @POST
+    @Consumes( "application/octet-stream" )
+    @Produces( "text/plain" )
+    public String unlimited( InputStream in ) throws IOException {
+      return Long.toString( count( in ) );
+    }
+
+    private static long count( InputStream in ) throws IOException {
+      byte[] b = new byte[ 100 ];
+      long total = 0;
+      int n;
+      while( ( n = in.read( b ) ) >= 0 ) {
+        total += n;
+      }
+      in.close();
+      return total;
+    }
+
+  }
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( UploadResource.class ).bodyLimit( 4096 ).start();
+  }
+
+  @Test
+  public void testSpill() throws IOException {
+    assertThat( post( "upload/limited", 10, false ), is( "200:10" ) );
+    assertThat( UploadResource.spilled, is( false ) );
+    assertThat( post( "upload/limited", 1000, false ), is( "200:1000" ) );
+    assertThat( UploadResource.spilled, is( true ) );
+    assertThat( UploadResource.buffer.isSpilled(), is( false ) );
+    assertThat( post( "upload/limited", 1000, true ), is( "200:1000" ) );
+    assertThat( post( "upload/limited", 1025, false ), is( "413" ) );
+    assertThat( post( "upload/limited", 2000, true ), is( "413" ) );
+  }
+
+  @Test
+  public void testSpillReleasedOnFailure() throws Exception {
+    for( int i = 0; i < 3; i++ ) {
+      assertThat( post( "upload/failing", 100, false ), is( "500" ) );
+      assertThat( UploadResource.spilled, is( true ) );
+      // The buffer is released when the request finishes, which may be just after the response is sent.
+      long end = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+      while( UploadResource.buffer.isSpilled() && System.nanoTime() < end ) {
+        Thread.sleep( 10 );
+      }
+      assertThat( UploadResource.buffer.isSpilled(), is( false ) );
+    }
+  }
+
+  @Test
+  public void testStreamed() throws IOException {
+    assertThat( post( "upload/streamed", 1024, true ), is( "200:1024" ) );
+    assertThat( post( "upload/streamed", 1025, false ), is( "413" ) );
+    assertThat( post( "upload/streamed", 3000, true ), is( "413" ) );
+  }
+
+  @Test
+  public void testServerDefault() throws IOException {
+    assertThat( post( "upload/default", 4096, false ), is( "200:4096" ) );
+    assertThat( post( "upload/default", 4097, false ), is( "413" ) );
+    assertThat( post( "upload/default", 8000, true ), is( "413" ) );
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+  private static String post( String path, int size, boolean chunked ) throws IOException {
+    HttpURLConnection c = (HttpURLConnection)uri.resolve( path ).toURL().openConnection();
+    c.setRequestMethod( "POST" );
+    c.setDoOutput( true );
+    c.setRequestProperty( "Content-Type", "application/octet-stream" );
+    if( chunked ) {
+      c.setChunkedStreamingMode( 256 );
+    } else {
+      c.setFixedLengthStreamingMode( size );
+    }
+    byte[] body = new byte[ size ];
+    Arrays.fill( body, (byte)'x' );
+    try( OutputStream out = c.getOutputStream() ) {
+      out.write( body );
+    } catch( IOException e ) {
+      // The server may reject the body before it has all been sent.
+    }
+    int status = c.getResponseCode();
+    if( status != 200 ) {
+      return Integer.toString( status );
+    }
+    try( Scanner scanner = new Scanner( c.getInputStream(), "UTF-8" ) ) {
+      return status + ":" + scanner.useDelimiter( "\\A" ).next();
+    }
+  }
+
+}
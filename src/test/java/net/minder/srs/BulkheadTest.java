@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+public class BulkheadTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+  private static Client client = null;
+
+  static CountDownLatch entered = new CountDownLatch( 1 );
+  static CountDownLatch release = new CountDownLatch( 1 );
+
+  @Path( "/slow" )
+  @Bulkhead( "slow" )
+  public static class SlowResource {
+    @GET
+    @Produces( "text/plain" )
+    public String slow() throws InterruptedException {
+      entered.countDown();
+      release.await( 10, TimeUnit.SECONDS );
+      return Thread.currentThread().getName();
+    }
+  }
+
+  @Path( "/scoped" )
+  @Singleton
+  public static class ScopedResource {
+    @Context
+    UriInfo info;
+    @GET
+    @Produces( "text/plain" )
+    public String scoped() {
+      return Thread.currentThread().getName() + ":" + info.getPath();
+    }
+    @GET
+    @Path( "fail" )
+    @Produces( "text/plain" )
+    public String fail() {
+      assertThat( info.getPath(), is( "expected" ) );
+      return "unreachable";
+    }
+  }
+
+  @Path( "/typo" )
+  public static class TypoResource {
+    @GET
+    @Bulkhead( "nope" )
+    @Produces( "text/plain" )
+    public String typo() {
+      return "unreachable";
+    }
+  }
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri )
+        .resources( SimpleRestServerSample.class, SlowResource.class, ScopedResource.class )
+        .bulkhead( "slow", 1, 1 )
+        .bulkhead( "fast", 2, 0 )
+        .bulkhead( "fast", ScopedResource.class )
+        .start();
+    client = ClientBuilder.newClient();
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    release.countDown();
+    client.close();
+    server.destroy();
+  }
+
+  private static Response get( String path ) {
+    return client.target( uri ).path( path ).request( MediaType.TEXT_PLAIN_TYPE ).get();
+  }
+
+  @Test
+  public void testIsolation() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool( 2 );
+    try {
+      Callable<String> slow = new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return get( "slow" ).readEntity( String.class );
+        }
+      };
+      Future<String> running = executor.submit( slow );
+      assertThat( entered.await( 10, TimeUnit.SECONDS ), is( true ) );
+      Future<String> queued = executor.submit( slow );
+      BulkheadPool pool = server.getBulkhead( "slow" );
+      long deadline = System.currentTimeMillis() + 10000;
+      while( pool.getQueued() < 1 && System.currentTimeMillis() < deadline ) {
+        Thread.sleep( 10 );
+      }
+      assertThat( pool.getActive(), is( 1 ) );
+      assertThat( pool.getQueued(), is( 1 ) );
+
+      Response rejected = get( "slow" );
+      assertThat( rejected.getStatus(), is( 503 ) );
+      rejected.close();
+      assertThat( pool.getRejected(), is( 1L ) );
+
+      Response ping = get( "ping" );
+      assertThat( ping.getStatus(), is( 200 ) );
+      assertThat( ping.readEntity( String.class ), is( "hello" ) );
+
+      release.countDown();
+      assertThat( running.get( 10, TimeUnit.SECONDS ), startsWith( "bulkhead-slow-" ) );
+      assertThat( queued.get( 10, TimeUnit.SECONDS ), startsWith( "bulkhead-slow-" ) );
+      assertThat( pool.getSubmitted(), is( 2L ) );
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRequestScope() {
+    Response response = get( "scoped" );
+    assertThat( response.getStatus(), is( 200 ) );
+    assertThat( response.readEntity( String.class ), is( "bulkhead-fast-1:scoped" ) );
+    assertThat( server.getBulkhead( "fast" ).getSubmitted(), is( 1L ) );
+
+    response = get( "scoped/fail" );
+    assertThat( response.getStatus(), is( 517 ) );
+    assertThat( response.readEntity( String.class ), containsString( "but: was \"scoped/fail\"" ) );
+  }
+
+  @Test
+  public void testUnknownBulkhead() throws Exception {
+    URI other = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    try {
+      new SimpleRestServer().uri( other ).resources( TypoResource.class ).bulkhead( "slow", 1, 1 ).start();
+      fail( "Expected IllegalStateException" );
+    } catch( IllegalStateException e ) {
+      assertThat( e.getMessage(), startsWith( "Unknown bulkhead nope for " ) );
+    }
+    try {
+      new SimpleRestServer().uri( other ).resources( ScopedResource.class ).bulkhead( "nope", ScopedResource.class ).start();
+      fail( "Expected IllegalStateException" );
+    } catch( IllegalStateException e ) {
+      assertThat( e.getMessage(), startsWith( "Unknown bulkhead nope for " ) );
+    }
+  }
+
+}
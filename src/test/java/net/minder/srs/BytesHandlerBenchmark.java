@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URI;
+
+// Compares a trivial text endpoint served by Jersey with the same response from a BytesHandler.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.minder.srs.BytesHandlerBenchmark
+public class BytesHandlerBenchmark {
+
+  public static void main( String[] args ) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 20000;
+    SimpleRestServer.noDelay();
+
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri )
+        .resources( SimpleRestServerSample.class )
+        .handler( "/health", BytesHandler.text( "hello" ) )
+        .start();
+    try {
+      for( int round = 0; round < 2; round++ ) {
+        String label = round == 0 ? "warmup " : "";
+        run( label + "jersey", uri.resolve( "ping" ), iterations );
+        run( label + "bytes handler", uri.resolve( "health" ), iterations );
+      }
+    } finally {
+      server.destroy();
+    }
+  }
+
+  // The client runs on this thread, so only CPU and allocation of the server threads are counted.
+  private static void run( String label, URI uri, int iterations ) throws IOException {
+    byte[] buffer = new byte[ 1024 ];
+    long[] before = getServerUsage();
+    long start = System.nanoTime();
+    for( int i = 0; i < iterations; i++ ) {
+      HttpURLConnection c = (HttpURLConnection)uri.toURL().openConnection();
+      try( InputStream in = c.getInputStream() ) {
+        while( in.read( buffer ) >= 0 ) {
+          // Drain.
+        }
+      }
+    }
+    double seconds = ( System.nanoTime() - start ) / 1e9;
+    long[] after = getServerUsage();
+    System.out.printf( "%-20s %8.0f requests/s %8.1f us cpu/request %8.2f KB allocated/request%n",
+        label, iterations / seconds,
+        ( after[ 0 ] - before[ 0 ] ) / 1000.0 / iterations,
+        ( after[ 1 ] - before[ 1 ] ) / 1024.0 / iterations );
+  }
+
+  private static long[] getServerUsage() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    long self = Thread.currentThread().getId();
+    long cpu = 0;
+    long heap = 0;
+    for( long id: threads.getAllThreadIds() ) {
+      if( id != self ) {
+        cpu += Math.max( 0, threads.getThreadCpuTime( id ) );
+        heap += Math.max( 0, threads.getThreadAllocatedBytes( id ) );
+      }
+    }
+    return new long[]{ cpu, heap };
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+public class BytesHandlerTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri )
+        .resources( SimpleRestServerSample.class )
+        .handler( "/health", BytesHandler.text( "ok" ) )
+        .start();
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+  @Test
+  public void testBytes() throws IOException {
+    HttpURLConnection c = open( "health", "GET" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( c.getContentType(), is( "text/plain; charset=UTF-8" ) );
+    assertThat( read( c ), is( "ok" ) );
+
+    c = open( "health", "HEAD" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( c.getHeaderField( "Content-Length" ), is( "2" ) );
+
+    c = open( "health", "POST" );
+    assertThat( c.getResponseCode(), is( 405 ) );
+    assertThat( c.getHeaderField( "Allow" ), is( "GET, HEAD" ) );
+
+    c = open( "ping", "GET" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( read( c ), is( "hello" ) );
+  }
+
+  @Test
+  public void testHandlerAfterStart() throws IOException {
+    final String[] thread = new String[ 1 ];
+    server.handler( "/thread", new HttpHandler() {
+      @Override
+      public void handle( HttpExchange exchange ) throws IOException {
+        thread[ 0 ] = Thread.currentThread().getName();
+        exchange.sendResponseHeaders( 204, -1 );
+        exchange.close();
+      }
+    } );
+    HttpURLConnection c = open( "thread", "GET" );
+    assertThat( c.getResponseCode(), is( 204 ) );
+    assertThat( thread[ 0 ], startsWith( "server-" ) );
+    assertThat( thread[ 0 ], not( startsWith( "HTTP-Dispatcher" ) ) );
+
+    server.handler( "/thread", BytesHandler.json( "{}" ) );
+    c = open( "thread", "GET" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( read( c ), is( "{}" ) );
+  }
+
+  @Test
+  public void testBodyLimit() throws IOException {
+    server.handler( "/limited", BytesHandler.text( "ok" ).bodyLimit( 16 ) );
+    assertThat( send( "limited", new byte[ 16 ] ), startsWith( "HTTP/1.1 200" ) );
+    assertThat( send( "limited", new byte[ 17 ] ), startsWith( "HTTP/1.1 413" ) );
+  }
+
+  // HttpURLConnection turns a GET with a body into a POST, so the request is written by hand.
+  private static String send( String path, byte[] body ) throws IOException {
+    try( Socket socket = new Socket( uri.getHost(), uri.getPort() ) ) {
+      OutputStream out = socket.getOutputStream();
+      String head = "GET /" + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+      out.write( head.getBytes( StandardCharsets.US_ASCII ) );
+      out.write( body );
+      out.flush();
+      BufferedReader in = new BufferedReader( new InputStreamReader( socket.getInputStream(), StandardCharsets.US_ASCII ) );
+      return in.readLine();
+    }
+  }
+
+  private static HttpURLConnection open( String path, String method ) throws IOException {
+    HttpURLConnection c = (HttpURLConnection)uri.resolve( path ).toURL().openConnection();
+    c.setRequestMethod( method );
+    return c;
+  }
+
+  private static String read( HttpURLConnection c ) throws IOException {
+    try( Scanner scanner = new Scanner( c.getInputStream(), "UTF-8" ) ) {
+      return scanner.useDelimiter( "\\A" ).next();
+    }
+  }
+
+}
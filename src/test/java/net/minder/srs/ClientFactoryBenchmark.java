@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.MediaType;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+
+// Compares building and closing a client around every call with reusing a pooled ClientFactory client.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.minder.srs.ClientFactoryBenchmark
+public class ClientFactoryBenchmark {
+
+  public static void main( String[] args ) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 2000;
+
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri ).resources( SimpleRestServerSample.class ).start();
+    ClientFactory factory = new ClientFactory();
+    try {
+      for( int round = 0; round < 2; round++ ) {
+        String label = round == 0 ? "warmup " : "";
+        run( label + "client per call", uri, iterations, null );
+        run( label + "shared client", uri, iterations, factory );
+      }
+    } finally {
+      factory.close();
+      server.destroy();
+    }
+  }
+
+  // Only the CPU and allocation of this, the calling, thread are counted.
+  private static void run( String label, URI uri, int iterations, ClientFactory factory ) {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    long cpu = threads.getCurrentThreadCpuTime();
+    long heap = threads.getThreadAllocatedBytes( Thread.currentThread().getId() );
+    long start = System.nanoTime();
+    for( int i = 0; i < iterations; i++ ) {
+      Client client = factory == null ? ClientBuilder.newClient() : factory.getClient();
+      client.target( uri ).path( "query" ).request( MediaType.APPLICATION_JSON_TYPE ).get( SimpleRestServerSample.Output.class );
+      if( factory == null ) {
+        client.close();
+      }
+    }
+    double seconds = ( System.nanoTime() - start ) / 1e9;
+    System.out.printf( "%-24s %8.0f requests/s %8.1f us cpu/request %8.2f KB allocated/request%n",
+        label, iterations / seconds,
+        ( threads.getCurrentThreadCpuTime() - cpu ) / 1000.0 / iterations,
+        ( threads.getThreadAllocatedBytes( Thread.currentThread().getId() ) - heap ) / 1024.0 / iterations );
+  }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ClientFactoryTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+  private static final Set<Integer> ports = Collections.synchronizedSet( new HashSet<Integer>() );
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( SimpleRestServerSample.class ).handler( "/port", new HttpHandler() {
+      @Override
+      public void handle( HttpExchange exchange ) throws IOException {
+        ports.add( exchange.getRemoteAddress().getPort() );
+        try {
+          Thread.sleep( 5 );
+        } catch( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+        byte[] body = "ok".getBytes( "UTF-8" );
+        exchange.sendResponseHeaders( 200, body.length );
+        exchange.getResponseBody().write( body );
+        exchange.close();
+      }
+    } ).start();
+  }
+
+  @Test
+  public void testJson() {
+    Client client = ClientFactory.shared();
+    assertThat( ClientFactory.shared(), sameInstance( client ) );
+    SimpleRestServerSample.Output output = client.target( uri ).path( "query" )
+        .request( MediaType.APPLICATION_JSON_TYPE ).get( SimpleRestServerSample.Output.class );
+    assertThat( output.id, is( "test-id" ) );
+    String status = client.target( uri ).path( "exec" ).request( MediaType.TEXT_PLAIN_TYPE )
+        .post( Entity.entity( new SimpleRestServerSample.Input(), MediaType.APPLICATION_JSON_TYPE ), String.class );
+    assertThat( status, is( "ok" ) );
+
+    // A caller closing the shared client must not break it for everyone else.
+    client.close();
+    output = ClientFactory.shared().target( uri ).path( "query" )
+        .request( MediaType.APPLICATION_JSON_TYPE ).get( SimpleRestServerSample.Output.class );
+    assertThat( output.id, is( "test-id" ) );
+
+    // Nor change its providers or properties.
+    try {
+      client.register( DeadlinePropagationFilter.class );
+      fail( "Expected IllegalStateException" );
+    } catch( IllegalStateException e ) {
+      // Expected.
+    }
+    try {
+      client.property( "test-property", "test-value" );
+      fail( "Expected IllegalStateException" );
+    } catch( IllegalStateException e ) {
+      // Expected.
+    }
+    assertThat( client.getConfiguration().getProperty( "test-property" ), nullValue() );
+    assertThat( client.getConfiguration().isRegistered( DeadlinePropagationFilter.class ), is( false ) );
+  }
+
+  @Test
+  public void testKeepAlive() {
+    ClientFactory factory = new ClientFactory();
+    try {
+      ports.clear();
+      Client client = factory.getClient();
+      for( int i = 0; i < 20; i++ ) {
+        assertThat( client.target( uri ).path( "port" ).request().get( String.class ), is( "ok" ) );
+      }
+      assertThat( ports.size(), is( 1 ) );
+      assertThat( factory.getStats( uri ).getAvailable(), is( 1 ) );
+      assertThat( factory.getStats( uri ).getLeased(), is( 0 ) );
+    } finally {
+      factory.close();
+    }
+  }
+
+  @Test
+  public void testRouteLimit() throws Exception {
+    final ClientFactory factory = new ClientFactory().maxPerRoute( 10 ).maxPerRoute( uri, 3 );
+    ExecutorService callers = Executors.newFixedThreadPool( 8 );
+    try {
+      ports.clear();
+      final CountDownLatch start = new CountDownLatch( 1 );
+      Future<?>[] futures = new Future<?>[ 8 ];
+      for( int i = 0; i < futures.length; i++ ) {
+        futures[ i ] = callers.submit( new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            start.await();
+            for( int j = 0; j < 10; j++ ) {
+              assertThat( factory.getClient().target( uri ).path( "port" ).request().get( String.class ), is( "ok" ) );
+            }
+            return null;
+          }
+        } );
+      }
+      start.countDown();
+      for( Future<?> future: futures ) {
+        future.get( 30, TimeUnit.SECONDS );
+      }
+      assertThat( ports.size(), greaterThan( 1 ) );
+      assertThat( ports.size(), lessThanOrEqualTo( 3 ) );
+      assertThat( factory.getStats( uri ).getMax(), is( 3 ) );
+    } finally {
+      callers.shutdown();
+      factory.close();
+    }
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+}
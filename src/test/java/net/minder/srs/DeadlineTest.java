@@ -0,0 +1,228 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class DeadlineTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+  private static Client client = null;
+
+  static volatile CountDownLatch interrupted = new CountDownLatch( 1 );
+
+  @Path( "/deadline" )
+  public static class DeadlineResource {
+
+    @GET
+    @Path( "sleep" )
+    @Produces( "text/plain" )
+    public String sleep( @QueryParam( "millis" ) long millis ) {
+      try {
+        Thread.sleep( millis );
+        return "done";
+      } catch( InterruptedException e ) {
+        interrupted.countDown();
+        return "interrupted";
+      }
+    }
+
+    @GET
+    @Path( "short" )
+    @Produces( "text/plain" )
+    @Deadline( 200 )
+    public String shortSleep( @QueryParam( "millis" ) long millis ) {
+      return sleep( millis );
+    }
+
+    @GET
+    @Path( "budget" )
+    @Produces( "text/plain" )
+    public String budget( @Context RequestDeadline deadline ) {
+      long injected = deadline.getRemaining( TimeUnit.MILLISECONDS );
+      long current = RequestDeadline.current().getRemaining( TimeUnit.MILLISECONDS );
+      return injected + ":" + current;
+    }
+
+    @GET
+    @Path( "forward" )
+    @Produces( "text/plain" )
+    public String forward() {
+      Client client = ClientBuilder.newClient().register( DeadlinePropagationFilter.class );
+      try {
+        return client.target( uri ).path( "deadline/header" ).request( MediaType.TEXT_PLAIN_TYPE ).get( String.class );
+      } finally {
+        client.close();
+      }
+    }
+
+    @GET
+    @Path( "header" )
+    @Produces( "text/plain" )
+    public String header( @HeaderParam( RequestDeadline.HEADER ) String header ) {
+      return header;
+    }
+
+  }
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( DeadlineResource.class ).deadline( 3, TimeUnit.SECONDS ).start();
+    client = ClientBuilder.newClient();
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    client.close();
+    server.destroy();
+  }
+
+  private static Response get( String path, long millis, String header ) {
+    Invocation.Builder request = client.target( uri ).path( path )
+        .queryParam( "millis", millis ).request( MediaType.TEXT_PLAIN_TYPE );
+    if( header != null ) {
+      request.header( RequestDeadline.HEADER, header );
+    }
+    return request.get();
+  }
+
+  @Test
+  public void testAnnotation() throws Exception {
+    interrupted = new CountDownLatch( 1 );
+    long start = System.nanoTime();
+    Response response = get( "deadline/short", 10000, null );
+    long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+    assertThat( response.getStatus(), is( 504 ) );
+    response.close();
+    assertThat( elapsed, lessThan( 2000L ) );
+    assertThat( interrupted.await( 5, TimeUnit.SECONDS ), is( true ) );
+
+    response = get( "deadline/short", 10, null );
+    assertThat( response.getStatus(), is( 200 ) );
+    assertThat( response.readEntity( String.class ), is( "done" ) );
+  }
+
+  @Test
+  public void testHeader() {
+    Response response = get( "deadline/sleep", 500, null );
+    assertThat( response.getStatus(), is( 200 ) );
+    response.close();
+
+    response = get( "deadline/sleep", 2000, "100" );
+    assertThat( response.getStatus(), is( 504 ) );
+    response.close();
+
+    // A client can't extend the configured budget.
+    long start = System.nanoTime();
+    response = get( "deadline/short", 2000, "60000" );
+    assertThat( response.getStatus(), is( 504 ) );
+    response.close();
+    assertThat( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ), lessThan( 1500L ) );
+
+    response = get( "deadline/sleep", 0, "0" );
+    assertThat( response.getStatus(), is( 504 ) );
+    response.close();
+
+    response = get( "deadline/sleep", 0, "bogus" );
+    assertThat( response.getStatus(), is( 200 ) );
+    response.close();
+  }
+
+  @Test
+  public void testHeaderWithoutDeadline() throws Exception {
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri ).resources( DeadlineResource.class ).start();
+    try {
+      // Without a server or resource deadline the header is only applied cooperatively.
+      Response response = client.target( uri ).path( "deadline/sleep" ).queryParam( "millis", 500 )
+          .request( MediaType.TEXT_PLAIN_TYPE ).header( RequestDeadline.HEADER, "100" ).get();
+      assertThat( response.getStatus(), is( 200 ) );
+      assertThat( response.readEntity( String.class ), is( "done" ) );
+
+      String[] budget = client.target( uri ).path( "deadline/budget" )
+          .request( MediaType.TEXT_PLAIN_TYPE ).header( RequestDeadline.HEADER, "1000" ).get( String.class ).split( ":" );
+      assertThat( Long.parseLong( budget[ 0 ] ), lessThanOrEqualTo( 1000L ) );
+      assertThat( Long.parseLong( budget[ 1 ] ), greaterThan( 0L ) );
+    } finally {
+      server.destroy();
+    }
+  }
+
+  @Test
+  public void testDeadlinePoolFull() throws Exception {
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri ).resources( DeadlineResource.class ).deadline( 5, TimeUnit.SECONDS ).deadlineThreads( 1 ).start();
+    try {
+      Future<Response> slow = client.target( uri ).path( "deadline/sleep" ).queryParam( "millis", 1000 )
+          .request( MediaType.TEXT_PLAIN_TYPE ).async().get();
+      Thread.sleep( 300 );
+      Response response = client.target( uri ).path( "deadline/sleep" ).queryParam( "millis", 0 )
+          .request( MediaType.TEXT_PLAIN_TYPE ).get();
+      assertThat( response.getStatus(), is( 503 ) );
+      response.close();
+      response = slow.get( 10, TimeUnit.SECONDS );
+      assertThat( response.getStatus(), is( 200 ) );
+      response.close();
+    } finally {
+      server.destroy();
+    }
+  }
+
+  @Test
+  public void testContext() {
+    String[] budget = get( "deadline/budget", 0, "1000" ).readEntity( String.class ).split( ":" );
+    assertThat( Long.parseLong( budget[ 0 ] ), lessThanOrEqualTo( 1000L ) );
+    assertThat( Long.parseLong( budget[ 0 ] ), greaterThan( 0L ) );
+    assertThat( Long.parseLong( budget[ 1 ] ), lessThanOrEqualTo( Long.parseLong( budget[ 0 ] ) ) );
+
+    String forwarded = get( "deadline/forward", 0, "1500" ).readEntity( String.class );
+    assertThat( Long.parseLong( forwarded ), lessThanOrEqualTo( 1500L ) );
+    assertThat( Long.parseLong( forwarded ), greaterThan( 0L ) );
+  }
+
+}
@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class EventBroadcasterTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+  private static EventBroadcaster events = new EventBroadcaster().capacity( 8 ).writers( 2 );
+  private static EventBroadcaster slow = new EventBroadcaster().capacity( 8 ).writers( 2 );
+  private static EventBroadcaster stalls = new EventBroadcaster().capacity( 8 ).writers( 2 );
+
+  public static class Tick {
+    static final AtomicInteger serialized = new AtomicInteger();
+    private final int n;
+    Tick( int n ) {
+      this.n = n;
+    }
+    public int getN() {
+      serialized.incrementAndGet();
+      return n;
+    }
+  }
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).events( "/events", events ).events( "/slow", slow ).events( "/stalled", stalls ).start();
+  }
+
+  @Test
+  public void testBroadcast() throws Exception {
+    List<BufferedReader> readers = new ArrayList<>();
+    for( int i = 0; i < 5; i++ ) {
+      readers.add( subscribe( "events" ) );
+    }
+    awaitSubscribers( events, 5 );
+    // Idle subscribers don't hold server or writer threads.
+    assertThat( countThreads( "sse-writer-" ), lessThanOrEqualTo( 2 ) );
+
+    Tick.serialized.set( 0 );
+    long first = events.broadcast( "tick", new Tick( 1 ) );
+    events.broadcast( "tick", new Tick( 2 ) );
+    events.broadcast( null, "plain\ntext" );
+    assertThat( Tick.serialized.get(), is( 2 ) );
+
+    for( BufferedReader reader: readers ) {
+      assertThat( next( reader ), is( Arrays.asList( "id: " + first, "event: tick", "data: {\"n\":1}" ) ) );
+      assertThat( next( reader ), is( Arrays.asList( "id: " + ( first + 1 ), "event: tick", "data: {\"n\":2}" ) ) );
+      assertThat( next( reader ), is( Arrays.asList( "id: " + ( first + 2 ), "data: plain", "data: text" ) ) );
+    }
+  }
+
+  @Test
+  public void testSlowConsumerEvicted() throws Exception {
+    AtomicInteger received = new AtomicInteger();
+    Thread reader = read( subscribe( "slow" ), received );
+    int before = slow.getSubscribers();
+    long evicted = slow.getEvicted();
+    Socket stalled = stall( "slow" );
+    try {
+      awaitSubscribers( slow, before + 1 );
+      int count = 400;
+      broadcastBig( slow, count );
+      assertThat( slow.getEvicted() - evicted, is( 1L ) );
+      assertThat( slow.getSubscribers(), is( before ) );
+      awaitReceived( received, count );
+    } finally {
+      stalled.close();
+      // Ends the healthy stream, the reader sees the end of it.
+      slow.close();
+      reader.join( 10000 );
+    }
+  }
+
+  @Test
+  public void testStalledWritersReleased() throws Exception {
+    long evicted = stalls.getEvicted();
+    // More stalled clients than writers, so without aborting their writes every writer would stay blocked.
+    List<Socket> stalled = new ArrayList<>();
+    Thread reader = null;
+    try {
+      for( int i = 0; i < 3; i++ ) {
+        stalled.add( stall( "stalled" ) );
+      }
+      awaitSubscribers( stalls, stalled.size() );
+      for( int i = 0; i < 1000 && stalls.getSubscribers() > 0; i++ ) {
+        broadcastBig( stalls, 1 );
+      }
+      assertThat( stalls.getEvicted() - evicted, is( (long)stalled.size() ) );
+
+      AtomicInteger received = new AtomicInteger();
+      reader = read( subscribe( "stalled" ), received );
+      int count = 100;
+      broadcastBig( stalls, count );
+      assertThat( stalls.getSubscribers(), is( 1 ) );
+      awaitReceived( received, count );
+    } finally {
+      for( Socket socket: stalled ) {
+        socket.close();
+      }
+      stalls.close();
+      if( reader != null ) {
+        reader.join( 10000 );
+      }
+    }
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+  private static BufferedReader subscribe( String path ) throws IOException {
+    HttpURLConnection c = (HttpURLConnection)uri.resolve( path ).toURL().openConnection();
+    c.setRequestProperty( "Accept", "text/event-stream" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( c.getContentType(), is( "text/event-stream; charset=UTF-8" ) );
+    BufferedReader reader = new BufferedReader( new InputStreamReader( c.getInputStream(), StandardCharsets.UTF_8 ) );
+    assertThat( reader.readLine(), is( ": connected" ) );
+    assertThat( reader.readLine(), is( "" ) );
+    return reader;
+  }
+
+  // Counts the events read from the stream until it ends.
+  private static Thread read( final BufferedReader events, final AtomicInteger received ) {
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        try {
+          while( !next( events ).isEmpty() ) {
+            received.incrementAndGet();
+          }
+        } catch( IOException e ) {
+          // Closed.
+        }
+      }
+    };
+    reader.start();
+    return reader;
+  }
+
+  // A subscriber with a small receive buffer that never reads.
+  private static Socket stall( String path ) throws IOException {
+    Socket socket = new Socket();
+    socket.setReceiveBufferSize( 4096 );
+    socket.connect( new InetSocketAddress( uri.getHost(), uri.getPort() ) );
+    OutputStream out = socket.getOutputStream();
+    out.write( ( "GET /" + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n" ).getBytes( StandardCharsets.US_ASCII ) );
+    out.flush();
+    return socket;
+  }
+
+  private static void broadcastBig( EventBroadcaster events, int count ) throws InterruptedException {
+    char[] big = new char[ 64 * 1024 ];
+    Arrays.fill( big, 'x' );
+    String payload = new String( big );
+    for( int i = 0; i < count; i++ ) {
+      events.broadcast( "big", payload );
+      // Paced so that the healthy reader keeps up while the stalled ones never read.
+      Thread.sleep( 1 );
+    }
+  }
+
+  private static void awaitReceived( AtomicInteger received, int count ) throws InterruptedException {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+    while( received.get() < count && System.nanoTime() < end ) {
+      Thread.sleep( 10 );
+    }
+    assertThat( received.get(), is( count ) );
+  }
+
+  // The lines of the next event, skipping comments.
+  private static List<String> next( BufferedReader reader ) throws IOException {
+    List<String> lines = new ArrayList<>();
+    String line;
+    while( ( line = reader.readLine() ) != null ) {
+      if( line.isEmpty() ) {
+        if( !lines.isEmpty() ) {
+          break;
+        }
+      } else if( !line.startsWith( ":" ) ) {
+        lines.add( line );
+      }
+    }
+    return lines;
+  }
+
+  private static void awaitSubscribers( EventBroadcaster events, int count ) throws InterruptedException {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+    while( events.getSubscribers() < count && System.nanoTime() < end ) {
+      Thread.sleep( 10 );
+    }
+    assertThat( events.getSubscribers(), is( count ) );
+  }
+
+  private static int countThreads( String prefix ) {
+    int count = 0;
+    for( Thread thread: Thread.getAllStackTraces().keySet() ) {
+      if( thread.getName().startsWith( prefix ) ) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.Principal;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class FlightRecorderTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( SimpleRestServerSample.class, FlightRecorderResource.class ).flightRecorder().start();
+  }
+
+  @Test
+  public void testRequestEvents() throws Exception {
+    Client client = ClientBuilder.newClient();
+
+    String status = client.target( uri ).path( "admin/jfr/start" ).request( MediaType.TEXT_PLAIN_TYPE ).post( null, String.class );
+    assertThat( status, is( "ok" ) );
+
+    String entity = client.target( uri ).path( "ping" ).request( MediaType.TEXT_PLAIN_TYPE ).get( String.class );
+    assertThat( entity, is( "hello" ) );
+
+    SimpleRestServerSample.Input input = new SimpleRestServerSample.Input();
+    input.name = "invalid-test-name";
+    Response response = client.target( uri ).path( "exec" ).request( MediaType.TEXT_PLAIN_TYPE ).post( Entity.entity( input, MediaType.APPLICATION_JSON_TYPE ) );
+    assertThat( response.getStatus(), is( 517 ) );
+    response.close();
+
+    InputStream dump = client.target( uri ).path( "admin/jfr/dump" ).request( MediaType.APPLICATION_OCTET_STREAM_TYPE ).post( null, InputStream.class );
+    File file = File.createTempFile( "flight-recorder-test-", ".jfr" );
+    Files.copy( dump, file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+    dump.close();
+    FlightRecorderControl.close();
+    client.close();
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents( file.toPath() );
+    file.delete();
+
+    boolean ping = false, exec = false, assertion = false, queue = false;
+    for( RecordedEvent event: events ) {
+      String name = event.getEventType().getName();
+      if( name.equals( "net.minder.srs.Request" ) ) {
+        if( "ping".equals( event.getString( "path" ) ) ) {
+          assertThat( event.getInt( "status" ), is( 200 ) );
+          assertThat( event.getString( "resource" ), is( SimpleRestServerSample.class.getName() + ".ping" ) );
+          assertThat( event.getLong( "bytesOut" ), is( 5L ) );
+          ping = true;
+        } else if( "exec".equals( event.getString( "path" ) ) ) {
+          assertThat( event.getInt( "status" ), is( 517 ) );
+          assertThat( event.getLong( "bytesIn" ), greaterThan( 0L ) );
+          exec = true;
+        }
+      } else if( name.equals( "net.minder.srs.AssertionError" ) ) {
+        assertion = true;
+      } else if( name.equals( "net.minder.srs.ExecutorQueue" ) ) {
+        queue = true;
+      }
+    }
+    assertThat( ping, is( true ) );
+    assertThat( exec, is( true ) );
+    assertThat( assertion, is( true ) );
+    assertThat( queue, is( true ) );
+  }
+
+  @Test
+  public void testAdminRole() throws Exception {
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri ).resources( FlightRecorderResource.class ).providers( RoleFilter.class ).adminRole( "ops" ).start();
+    Client client = ClientBuilder.newClient();
+    try {
+      Response response = client.target( uri ).path( "admin/jfr/status" ).request().get();
+      assertThat( response.getStatus(), is( 403 ) );
+      response.close();
+
+      response = client.target( uri ).path( "admin/jfr/status" ).request().header( "X-Role", "dev" ).get();
+      assertThat( response.getStatus(), is( 403 ) );
+      response.close();
+
+      String status = client.target( uri ).path( "admin/jfr/status" ).request().header( "X-Role", "ops" ).get( String.class );
+      assertThat( status, is( "stopped" ) );
+    } finally {
+      client.close();
+      server.destroy();
+    }
+  }
+
+  // Stands in for the application's authentication.
+  @PreMatching
+  public static class RoleFilter implements ContainerRequestFilter {
+    @Override
+    public void filter( ContainerRequestContext request ) {
+      final String role = request.getHeaderString( "X-Role" );
+      if( role == null ) {
+        return;
+      }
+      request.setSecurityContext( new SecurityContext() {
+        @Override
+        public Principal getUserPrincipal() {
+          return null;
+        }
+        @Override
+        public boolean isUserInRole( String name ) {
+          return role.equals( name );
+        }
+        @Override
+        public boolean isSecure() {
+          return false;
+        }
+        @Override
+        public String getAuthenticationScheme() {
+          return null;
+        }
+      } );
+    }
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+}
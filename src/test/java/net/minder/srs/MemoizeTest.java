@@ -0,0 +1,265 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class MemoizeTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+
+  @Path( "/memo" )
+  public static class MemoResource {
+
+    static final AtomicInteger calls = new AtomicInteger();
+
+    @Path( "/value" )
+    @GET
+    @Produces( "application/json" )
+    @Memoize( value = 300, headers = "X-Tenant" )
+    public SimpleRestServerSample.Output value( @QueryParam( "id" ) String id ) {
+      SimpleRestServerSample.Output output = new SimpleRestServerSample.Output();
+      output.id = id;
+      output.desc = Integer.toString( calls.incrementAndGet() );
+      return output;
+    }
+
+    @Path( "/slow" )
+    @GET
+    @Produces( "text/plain" )
+    @Memoize( value = 10, unit = TimeUnit.SECONDS )
+    public String slow() throws InterruptedException {
+      Thread.sleep( 300 );
+      return Integer.toString( calls.incrementAndGet() );
+    }
+
+    @Path( "/missing" )
+    @GET
+    @Produces( "text/plain" )
+    @Memoize( value = 10, unit = TimeUnit.SECONDS )
+    public String missing() {
+      calls.incrementAndGet();
+      throw new NotFoundException();
+    }
+
+    @Path( "/tagged" )
+    @GET
+    @Produces( "text/plain" )
+    @Memoize( value = 10, unit = TimeUnit.SECONDS )
+    public Response tagged() {
+      return Response.ok( Integer.toString( calls.incrementAndGet() ) )
+          .tag( "v1" )
+          .header( HttpHeaders.CACHE_CONTROL, "max-age=10" )
+          .header( "X-Custom", "custom" )
+          .header( HttpHeaders.SET_COOKIE, "session=secret" )
+          .build();
+    }
+
+    @Path( "/broken" )
+    @GET
+    @Produces( "text/plain" )
+    @Memoize( value = 10, unit = TimeUnit.SECONDS )
+    public String broken() {
+      calls.incrementAndGet();
+      throw new IllegalStateException( "Unmapped." );
+    }
+
+  }
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( MemoResource.class ).start();
+  }
+
+  @Test
+  public void testTtl() throws Exception {
+    MemoResource.calls.set( 0 );
+    String first = get( "memo/value?id=a", null );
+    assertThat( first, is( "miss:{\"id\":\"a\",\"desc\":\"1\"}" ) );
+    assertThat( get( "memo/value?id=a", null ), is( "hit:{\"id\":\"a\",\"desc\":\"1\"}" ) );
+    assertThat( get( "memo/value?id=b", null ), is( "miss:{\"id\":\"b\",\"desc\":\"2\"}" ) );
+    assertThat( get( "memo/value?id=a", "t1" ), is( "miss:{\"id\":\"a\",\"desc\":\"3\"}" ) );
+    assertThat( get( "memo/value?id=a", "t1" ), is( "hit:{\"id\":\"a\",\"desc\":\"3\"}" ) );
+    Thread.sleep( 400 );
+    assertThat( get( "memo/value?id=a", null ), is( "miss:{\"id\":\"a\",\"desc\":\"4\"}" ) );
+    assertThat( MemoResource.calls.get(), is( 4 ) );
+  }
+
+  @Test
+  public void testSingleFlight() throws Exception {
+    MemoResource.calls.set( 0 );
+    ResponseCache cache = server.getResponseCache();
+    long hits = cache.getHits();
+    long coalesced = cache.getCoalesced();
+    ExecutorService callers = Executors.newFixedThreadPool( 10 );
+    try {
+      final CountDownLatch start = new CountDownLatch( 1 );
+      List<Future<String>> futures = new ArrayList<>();
+      for( int i = 0; i < 10; i++ ) {
+        futures.add( callers.submit( new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            start.await();
+            return get( "memo/slow", null );
+          }
+        } ) );
+      }
+      start.countDown();
+      int misses = 0;
+      for( Future<String> future: futures ) {
+        String result = future.get( 30, TimeUnit.SECONDS );
+        assertThat( result.substring( result.indexOf( ':' ) ), is( ":1" ) );
+        misses += result.startsWith( "miss:" ) ? 1 : 0;
+      }
+      assertThat( misses, is( 1 ) );
+      assertThat( MemoResource.calls.get(), is( 1 ) );
+      assertThat( cache.getHits() - hits + cache.getCoalesced() - coalesced, is( 9L ) );
+    } finally {
+      callers.shutdown();
+    }
+  }
+
+  @Test
+  public void testErrorsNotCached() throws Exception {
+    MemoResource.calls.set( 0 );
+    assertThat( get( "memo/missing", null ), is( "404" ) );
+    assertThat( get( "memo/missing", null ), is( "404" ) );
+    assertThat( MemoResource.calls.get(), is( 2 ) );
+    long start = System.currentTimeMillis();
+    assertThat( get( "memo/broken", null ), is( "500" ) );
+    assertThat( get( "memo/broken", null ), is( "500" ) );
+    assertThat( MemoResource.calls.get(), is( 4 ) );
+    assertThat( System.currentTimeMillis() - start < 5000, is( true ) );
+  }
+
+  @Test
+  public void testHeadersReplayed() throws Exception {
+    MemoResource.calls.set( 0 );
+    HttpURLConnection miss = (HttpURLConnection)uri.resolve( "memo/tagged" ).toURL().openConnection();
+    assertThat( miss.getResponseCode(), is( 200 ) );
+    assertThat( miss.getHeaderField( MemoizeFilter.CACHE_HEADER ), is( "miss" ) );
+    assertThat( miss.getHeaderField( HttpHeaders.SET_COOKIE ), is( "session=secret" ) );
+    miss.getInputStream().close();
+
+    HttpURLConnection hit = (HttpURLConnection)uri.resolve( "memo/tagged" ).toURL().openConnection();
+    assertThat( hit.getResponseCode(), is( 200 ) );
+    assertThat( hit.getHeaderField( MemoizeFilter.CACHE_HEADER ), is( "hit" ) );
+    assertThat( hit.getHeaderField( HttpHeaders.ETAG ), is( miss.getHeaderField( HttpHeaders.ETAG ) ) );
+    assertThat( hit.getHeaderField( HttpHeaders.CACHE_CONTROL ), is( "max-age=10" ) );
+    assertThat( hit.getHeaderField( "X-Custom" ), is( "custom" ) );
+    assertThat( hit.getHeaderField( HttpHeaders.SET_COOKIE ), nullValue() );
+    assertThat( hit.getContentType(), is( "text/plain" ) );
+    hit.getInputStream().close();
+    assertThat( MemoResource.calls.get(), is( 1 ) );
+  }
+
+  @Test
+  public void testEviction() {
+    ResponseCache cache = new ResponseCache( 2, 10 );
+    put( cache, "a", 4 );
+    put( cache, "b", 4 );
+    assertThat( cache.lookup( "a", System.nanoTime() ).flight.isHit(), is( true ) );
+    put( cache, "c", 4 );
+    assertThat( cache.getSize(), is( 2 ) );
+    assertThat( cache.getBytes(), is( 8L ) );
+    assertThat( cache.getEvictions(), is( 1L ) );
+    assertThat( cache.lookup( "a", System.nanoTime() ).flight.isHit(), is( true ) );
+    put( cache, "d", 8 );
+    assertThat( cache.getSize(), is( 1 ) );
+    put( cache, "e", 11 );
+    assertThat( cache.getSize(), is( 1 ) );
+    ResponseCache.Lookup lookup = cache.lookup( "e", System.nanoTime() );
+    assertThat( lookup.leader, is( true ) );
+    cache.complete( lookup.flight, null );
+  }
+
+  @Test
+  public void testLeadership() {
+    ResponseCache cache = new ResponseCache( 2, 10 );
+    ResponseCache.Lookup leader = cache.lookup( "a", System.nanoTime() );
+    assertThat( leader.leader, is( true ) );
+    // A later lookup on the same thread, e.g. by a request after an abandoned one, follows the flight.
+    ResponseCache.Lookup follower = cache.lookup( "a", System.nanoTime() );
+    assertThat( follower.leader, is( false ) );
+    assertThat( follower.flight, sameInstance( leader.flight ) );
+    assertThat( follower.flight.isHit(), is( false ) );
+    cache.complete( leader.flight, new ResponseCache.Entry( "text/plain", new byte[ 4 ], System.nanoTime() + TimeUnit.MINUTES.toNanos( 1 ) ) );
+    ResponseCache.Lookup hit = cache.lookup( "a", System.nanoTime() );
+    assertThat( hit.leader, is( false ) );
+    assertThat( hit.flight.isHit(), is( true ) );
+    assertThat( cache.getCoalesced(), is( 1L ) );
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+  private static void put( ResponseCache cache, String key, int size ) {
+    ResponseCache.Lookup lookup = cache.lookup( key, System.nanoTime() );
+    assertThat( lookup.leader, is( true ) );
+    cache.complete( lookup.flight, new ResponseCache.Entry( "text/plain", new byte[ size ], System.nanoTime() + TimeUnit.MINUTES.toNanos( 1 ) ) );
+  }
+
+  private static String get( String path, String tenant ) throws IOException {
+    HttpURLConnection c = (HttpURLConnection)uri.resolve( path ).toURL().openConnection();
+    if( tenant != null ) {
+      c.setRequestProperty( "X-Tenant", tenant );
+    }
+    int status = c.getResponseCode();
+    if( status != 200 ) {
+      return Integer.toString( status );
+    }
+    try( Scanner scanner = new Scanner( c.getInputStream(), "UTF-8" ) ) {
+      return c.getHeaderField( MemoizeFilter.CACHE_HEADER ) + ":" + scanner.useDelimiter( "\\A" ).next();
+    }
+  }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.MediaType;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class PooledResourceTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+  private static Client client = null;
+
+  @Path( "/pooled" )
+  public static class PooledResource {
+    static final AtomicInteger instances = new AtomicInteger();
+    private final int id = instances.incrementAndGet();
+    @GET
+    @Path( "{name}" )
+    @Produces( "text/plain" )
+    public String get( @PathParam( "name" ) String name ) {
+      return id + ":" + name;
+    }
+  }
+
+  @Path( "/singleton" )
+  public static class SingletonResource {
+    static final AtomicInteger instances = new AtomicInteger();
+    private final int id = instances.incrementAndGet();
+    @GET
+    @Produces( "text/plain" )
+    public String get() {
+      return Integer.toString( id );
+    }
+  }
+
+  @Path( "/plain" )
+  public static class PlainResource {
+    static final AtomicInteger instances = new AtomicInteger();
+    private final int id = instances.incrementAndGet();
+    @GET
+    @Produces( "text/plain" )
+    public String get() {
+      return Integer.toString( id );
+    }
+  }
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri )
+        .resources( PlainResource.class )
+        .singletons( new SingletonResource() )
+        .pooled( PooledResource.class, 2 )
+        .start();
+    client = ClientBuilder.newClient();
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    client.close();
+    server.destroy();
+  }
+
+  private static String get( String path ) {
+    return client.target( uri ).path( path ).request( MediaType.TEXT_PLAIN_TYPE ).get( String.class );
+  }
+
+  @Test
+  public void testPooled() {
+    for( int i = 0; i < 20; i++ ) {
+      assertThat( get( "pooled/test-" + i ).endsWith( ":test-" + i ), is( true ) );
+    }
+    ResourcePool<PooledResource> pool = server.getPool( PooledResource.class );
+    assertThat( PooledResource.instances.get(), lessThanOrEqualTo( 2 ) );
+    assertThat( pool.getCreated(), is( (long)PooledResource.instances.get() ) );
+    assertThat( pool.getCreated() + pool.getReused(), is( 20L ) );
+    assertThat( pool.getIdle(), lessThanOrEqualTo( 2 ) );
+  }
+
+  @Test
+  public void testSingleton() {
+    for( int i = 0; i < 5; i++ ) {
+      assertThat( get( "singleton" ), is( "1" ) );
+    }
+    assertThat( SingletonResource.instances.get(), is( 1 ) );
+  }
+
+  @Test
+  public void testPerRequest() {
+    int before = PlainResource.instances.get();
+    get( "plain" );
+    get( "plain" );
+    assertThat( PlainResource.instances.get(), is( before + 2 ) );
+  }
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class ProfilerTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+
+  @Path( "/burn" )
+  public static class BurnResource {
+
+    @GET
+    @Produces( "text/plain" )
+    public String burn() {
+      return Long.toString( spin( 2000 ) );
+    }
+
+  }
+
+  static long spin( long millis ) {
+    long end = System.currentTimeMillis() + millis;
+    long x = 0;
+    while( System.currentTimeMillis() < end ) {
+      x += Long.numberOfTrailingZeros( x + System.nanoTime() );
+    }
+    return x;
+  }
+
+  static void spinOther( long millis ) {
+    spin( millis );
+  }
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( BurnResource.class ).profiler().deadline( 1, TimeUnit.SECONDS ).start();
+  }
+
+  @Test
+  public void testEndpoint() throws Exception {
+    Thread burner = new Thread() {
+      @Override
+      public void run() {
+        try {
+          get( "burn" );
+        } catch( IOException e ) {
+          // Ignore, the deadline may end the request first.
+        }
+      }
+    };
+    burner.start();
+    Thread.sleep( 100 );
+    String stacks = get( "admin/profile?seconds=1&hz=200" );
+    burner.join();
+    assertThat( stacks, containsString( "ProfilerTest$BurnResource.burn;net.minder.srs.ProfilerTest.spin" ) );
+    for( String line: stacks.split( "\n" ) ) {
+      assertThat( line, not( containsString( "StackSampler" ) ) );
+      assertThat( Long.parseLong( line.substring( line.lastIndexOf( ' ' ) + 1 ) ), greaterThan( 0L ) );
+    }
+    assertThat( server.getProfiler().isRunning(), is( false ) );
+  }
+
+  @Test
+  public void testBadRequest() throws IOException {
+    assertThat( status( "admin/profile?seconds=0" ), is( 400 ) );
+    assertThat( status( "admin/profile?seconds=1&hz=5000" ), is( 400 ) );
+  }
+
+  @Test
+  public void testOneAtATime() throws Exception {
+    Thread profiler = new Thread() {
+      @Override
+      public void run() {
+        try {
+          get( "admin/profile?seconds=1" );
+        } catch( IOException e ) {
+          // Ignore.
+        }
+      }
+    };
+    profiler.start();
+    long deadline = System.currentTimeMillis() + 5000;
+    while( !server.getProfiler().isRunning() && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 );
+    }
+    assertThat( status( "admin/profile?seconds=1" ), is( 409 ) );
+    profiler.join();
+  }
+
+  @Test
+  public void testAdminOnly() throws Exception {
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri ).profiler().adminRole( "ops" ).start();
+    try {
+      HttpURLConnection c = (HttpURLConnection)uri.resolve( "admin/profile?seconds=1" ).toURL().openConnection();
+      assertThat( c.getResponseCode(), is( 403 ) );
+      assertThat( server.getProfiler().isRunning(), is( false ) );
+    } finally {
+      server.destroy();
+    }
+  }
+
+  @Test
+  public void testBounded() throws Exception {
+    ThreadGroup group = new ThreadGroup( "profiler-test" );
+    Thread a = new Thread( group, new Runnable() {
+      @Override
+      public void run() {
+        spin( 1000 );
+      }
+    } );
+    Thread b = new Thread( group, new Runnable() {
+      @Override
+      public void run() {
+        spinOther( 1000 );
+      }
+    } );
+    a.start();
+    b.start();
+    StackSampler sampler = new StackSampler( group ).maxStacks( 1 ).maxDepth( 2 );
+    StackSampler.Profile profile = sampler.profile( 500, TimeUnit.MILLISECONDS, 100, false );
+    a.join();
+    b.join();
+    assertThat( profile.getTicks(), greaterThan( 10L ) );
+    assertThat( profile.getSamples(), greaterThan( 10L ) );
+    assertThat( profile.getStackCount(), is( 2 ) );
+    String stacks = profile.toCollapsed();
+    assertThat( stacks, containsString( StackSampler.OTHER + " " ) );
+    assertThat( stacks, containsString( StackSampler.TRUNCATED + ";" ) );
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+  private static int status( String path ) throws IOException {
+    return ( (HttpURLConnection)uri.resolve( path ).toURL().openConnection() ).getResponseCode();
+  }
+
+  private static String get( String path ) throws IOException {
+    HttpURLConnection c = (HttpURLConnection)uri.resolve( path ).toURL().openConnection();
+    try( Scanner scanner = new Scanner( c.getInputStream(), "UTF-8" ) ) {
+      return scanner.useDelimiter( "\\A" ).next();
+    }
+  }
+
+}
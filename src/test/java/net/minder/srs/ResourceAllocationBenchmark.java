@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// Compares per-request, singleton and pooled instances of a resource that carries some reusable state.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.minder.srs.ResourceAllocationBenchmark
+public class ResourceAllocationBenchmark {
+
+  public static class Work {
+    private final SimpleDateFormat format = new SimpleDateFormat( "yyyy-MM-dd'T'HH:mm:ss.SSSZ" );
+    private final StringBuilder scratch = new StringBuilder( 4096 );
+    @GET
+    @Produces( "text/plain" )
+    public synchronized String get() {
+      scratch.setLength( 0 );
+      return scratch.append( format.format( new Date( 0 ) ) ).toString();
+    }
+  }
+
+  @Path( "/plain" )
+  public static class PlainWork extends Work {}
+
+  @Path( "/singleton" )
+  public static class SingletonWork extends Work {}
+
+  @Path( "/pooled" )
+  public static class PooledWork extends Work {}
+
+  public static void main( String[] args ) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 1000;
+
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri )
+        .resources( PlainWork.class )
+        .singletons( new SingletonWork() )
+        .pooled( PooledWork.class, 16 )
+        .start();
+    try {
+      for( int round = 0; round < 2; round++ ) {
+        String label = round == 0 ? "warmup " : "";
+        run( label + "per-request", uri.resolve( "plain" ), iterations );
+        run( label + "singleton", uri.resolve( "singleton" ), iterations );
+        run( label + "pooled", uri.resolve( "pooled" ), iterations );
+      }
+    } finally {
+      server.destroy();
+    }
+  }
+
+  // The client runs on this thread, so only allocation by the server threads is counted.
+  private static void run( String label, URI uri, int iterations ) throws IOException {
+    byte[] buffer = new byte[ 1024 ];
+    long allocated = getServerAllocatedBytes();
+    long start = System.nanoTime();
+    for( int i = 0; i < iterations; i++ ) {
+      HttpURLConnection c = (HttpURLConnection)uri.toURL().openConnection();
+      try( InputStream in = c.getInputStream() ) {
+        while( in.read( buffer ) >= 0 ) {
+          // Drain.
+        }
+      }
+    }
+    double seconds = ( System.nanoTime() - start ) / 1e9;
+    long heap = getServerAllocatedBytes() - allocated;
+    System.out.printf( "%-20s %8.0f requests/s %8.2f KB allocated/request%n",
+        label, iterations / seconds, heap / 1024.0 / iterations );
+  }
+
+  private static long getServerAllocatedBytes() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    long self = Thread.currentThread().getId();
+    long total = 0;
+    for( long id: threads.getAllThreadIds() ) {
+      long bytes = id == self ? -1 : threads.getThreadAllocatedBytes( id );
+      if( bytes > 0 ) {
+        total += bytes;
+      }
+    }
+    return total;
+  }
+
+}
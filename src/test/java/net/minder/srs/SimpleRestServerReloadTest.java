@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class SimpleRestServerReloadTest {
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+
+  static CountDownLatch entered = new CountDownLatch( 1 );
+  static CountDownLatch release = new CountDownLatch( 1 );
+
+  @Path( "/slow" )
+  public static class SlowResource {
+    @GET
+    @Produces( "text/plain" )
+    public String slow() throws InterruptedException {
+      entered.countDown();
+      release.await( 10, TimeUnit.SECONDS );
+      return "slow";
+    }
+  }
+
+  @Path( "/added" )
+  public static class AddedResource {
+    @GET
+    @Produces( "text/plain" )
+    public String added() {
+      return "added";
+    }
+  }
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( SimpleRestServerSample.class, SlowResource.class ).start();
+  }
+
+  @Test
+  public void testReloadKeepsInFlightRequests() throws Exception {
+    final Client client = ClientBuilder.newClient();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    Response response = client.target( uri ).path( "added" ).request( MediaType.TEXT_PLAIN_TYPE ).get();
+    assertThat( response.getStatus(), is( 404 ) );
+    response.close();
+
+    Future<String> slow = executor.submit( new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        return client.target( uri ).path( "slow" ).request( MediaType.TEXT_PLAIN_TYPE ).get( String.class );
+      }
+    } );
+    assertThat( entered.await( 10, TimeUnit.SECONDS ), is( true ) );
+
+    server.resources( AddedResource.class ).reload();
+
+    String entity = client.target( uri ).path( "added" ).request( MediaType.TEXT_PLAIN_TYPE ).get( String.class );
+    assertThat( entity, is( "added" ) );
+    entity = client.target( uri ).path( "ping" ).request( MediaType.TEXT_PLAIN_TYPE ).get( String.class );
+    assertThat( entity, is( "hello" ) );
+
+    release.countDown();
+    assertThat( slow.get( 10, TimeUnit.SECONDS ), is( "slow" ) );
+
+    executor.shutdown();
+    client.close();
+  }
+
+  @Test
+  public void testReloadNewConfigKeepsBuiltins() throws Exception {
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri ).resources( AddedResource.class ).start();
+    Client client = ClientBuilder.newClient();
+    try {
+      server.reload( new ResourceConfig( SimpleRestServerSample.class ) );
+
+      SimpleRestServerSample.Input input = new SimpleRestServerSample.Input();
+      input.name = "invalid-test-name";
+      Response response = client.target( uri ).path( "exec" ).request( MediaType.TEXT_PLAIN_TYPE ).post( Entity.entity( input, MediaType.APPLICATION_JSON_TYPE ) );
+      assertThat( response.getStatus(), is( 517 ) );
+      response.close();
+
+      response = client.target( uri ).path( "added" ).request( MediaType.TEXT_PLAIN_TYPE ).get();
+      assertThat( response.getStatus(), is( 404 ) );
+      response.close();
+    } finally {
+      client.close();
+      server.destroy();
+    }
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.MediaType;
+import java.net.URI;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SimpleRestServerRuleTest {
+
+  @ClassRule
+  public static SimpleRestServerRule forked = SimpleRestServerRule.forked( SimpleRestServerSample.class );
+
+  @ClassRule
+  public static SimpleRestServerRule local = SimpleRestServerRule.inProcess( SimpleRestServerSample.class );
+
+  @Rule
+  public SimpleRestServerRule shared = SimpleRestServerRule.forked( SimpleRestServerSample.class );
+
+  private static String ping( URI uri ) {
+    Client client = ClientBuilder.newClient();
+    try {
+      return client.target( uri ).path( "ping" ).request( MediaType.TEXT_PLAIN_TYPE ).get( String.class );
+    } finally {
+      client.close();
+    }
+  }
+
+  @Test
+  public void testForked() {
+    assertThat( forked.getProcess(), notNullValue() );
+    assertThat( forked.getServer(), nullValue() );
+    assertThat( ping( forked.getUri() ), is( "hello" ) );
+  }
+
+  @Test
+  public void testInProcess() {
+    assertThat( local.getServer(), notNullValue() );
+    assertThat( local.getProcess(), nullValue() );
+    assertThat( ping( local.getUri() ), is( "hello" ) );
+  }
+
+  @Test
+  public void testShared() {
+    assertThat( shared.getKey(), is( forked.getKey() ) );
+    assertThat( shared.getProcess(), sameInstance( forked.getProcess() ) );
+    assertThat( shared.getUri(), is( forked.getUri() ) );
+    assertThat( shared.getKey(), not( local.getKey() ) );
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URI;
+
+// Compares the static file handler with streaming the same file through a JAX-RS entity.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.minder.srs.StaticFileBenchmark
+public class StaticFileBenchmark {
+
+  private static File dir;
+
+  @Path( "/stream" )
+  public static class StreamResource {
+    @GET
+    @Path( "{name}" )
+    @Produces( "application/octet-stream" )
+    public StreamingOutput get( @PathParam( "name" ) final String name ) {
+      return new StreamingOutput() {
+        @Override
+        public void write( OutputStream out ) throws IOException {
+          try( InputStream in = new FileInputStream( new File( dir, name ) ) ) {
+            byte[] buffer = new byte[ 8192 ];
+            int n;
+            while( ( n = in.read( buffer ) ) >= 0 ) {
+              out.write( buffer, 0, n );
+            }
+          }
+        }
+      };
+    }
+  }
+
+  public static void main( String[] args ) throws Exception {
+    int sizeMb = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 64;
+    int iterations = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 20;
+
+    dir = new File( System.getProperty( "java.io.tmpdir" ), "srs-bench-" + System.nanoTime() );
+    dir.mkdirs();
+    File file = new File( dir, "artifact.bin" );
+    try( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) ) {
+      raf.setLength( sizeMb * 1024L * 1024L );
+    }
+
+    URI uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    SimpleRestServer server = new SimpleRestServer();
+    server.uri( uri ).resources( StreamResource.class ).files( "/files", dir ).start();
+    try {
+      for( int round = 0; round < 2; round++ ) {
+        String label = round == 0 ? "warmup " : "";
+        run( label + "file handler", uri.resolve( "files/artifact.bin" ), iterations, file.length() );
+        run( label + "jax-rs stream", uri.resolve( "stream/artifact.bin" ), iterations, file.length() );
+      }
+    } finally {
+      server.destroy();
+      file.delete();
+      dir.delete();
+    }
+  }
+
+  private static void run( String label, URI uri, int iterations, long size ) throws IOException {
+    byte[] buffer = new byte[ 64 * 1024 ];
+    long allocated = getAllocatedBytes();
+    long start = System.nanoTime();
+    for( int i = 0; i < iterations; i++ ) {
+      HttpURLConnection c = (HttpURLConnection)uri.toURL().openConnection();
+      long total = 0;
+      try( InputStream in = c.getInputStream() ) {
+        int n;
+        while( ( n = in.read( buffer ) ) >= 0 ) {
+          total += n;
+        }
+      }
+      if( total != size ) {
+        throw new IllegalStateException( "Expected " + size + " bytes but read " + total );
+      }
+    }
+    double seconds = ( System.nanoTime() - start ) / 1e9;
+    double mb = size * (double)iterations / ( 1024 * 1024 );
+    long heap = getAllocatedBytes() - allocated;
+    System.out.printf( "%-22s %8.1f MB/s %10.1f KB allocated/request%n", label, mb / seconds, heap / 1024.0 / iterations );
+  }
+
+  private static long getAllocatedBytes() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    long total = 0;
+    for( long id: threads.getAllThreadIds() ) {
+      long bytes = threads.getThreadAllocatedBytes( id );
+      if( bytes > 0 ) {
+        total += bytes;
+      }
+    }
+    return total;
+  }
+
+}
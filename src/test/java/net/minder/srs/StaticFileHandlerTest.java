@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.srs;
+
+import net.minder.util.PortUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class StaticFileHandlerTest {
+
+  @ClassRule
+  public static TemporaryFolder folder = new TemporaryFolder();
+
+  private static URI uri = null;
+  private static SimpleRestServer server = null;
+
+  @BeforeClass
+  public static void setUpSuite() throws Exception {
+    File dir = folder.newFolder( "files" );
+    write( new File( dir, "test.txt" ), "0123456789" );
+    write( new File( dir, "test.json" ), "{}" );
+    write( folder.newFile( "secret.txt" ), "secret" );
+    File system = new File( dir, "system" );
+    system.mkdir();
+    write( new File( system, "x.txt" ), "x" );
+    uri = new URI( "http", null, "localhost", PortUtils.getFreePort(), "/", null, null );
+    server = new SimpleRestServer();
+    server.uri( uri ).resources( SimpleRestServerSample.class ).files( "/files", dir ).start();
+  }
+
+  @Test
+  public void testGet() throws IOException {
+    HttpURLConnection c = open( "files/test.txt" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( c.getContentType(), is( "text/plain" ) );
+    assertThat( c.getHeaderField( "Accept-Ranges" ), is( "bytes" ) );
+    assertThat( c.getHeaderField( "Last-Modified" ), notNullValue() );
+    assertThat( read( c ), is( "0123456789" ) );
+
+    c = open( "files/test.json" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( c.getContentType(), is( "application/json" ) );
+
+    c = open( "ping" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( read( c ), is( "hello" ) );
+  }
+
+  @Test
+  public void testNotFound() throws IOException {
+    assertThat( open( "files/missing.txt" ).getResponseCode(), is( 404 ) );
+    assertThat( open( "files/../secret.txt" ).getResponseCode(), is( 404 ) );
+    assertThat( open( "files/%2e%2e/secret.txt" ).getResponseCode(), is( 404 ) );
+    assertThat( open( "files/" ).getResponseCode(), is( 404 ) );
+  }
+
+  @Test
+  public void testContextPrefix() throws IOException {
+    HttpURLConnection c = open( "files/system/x.txt" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( read( c ), is( "x" ) );
+    // Only whole path segments match the context.
+    assertThat( open( "filessystem/x.txt" ).getResponseCode(), is( 404 ) );
+  }
+
+  @Test
+  public void testRange() throws IOException {
+    HttpURLConnection c = open( "files/test.txt" );
+    c.setRequestProperty( "Range", "bytes=2-5" );
+    assertThat( c.getResponseCode(), is( 206 ) );
+    assertThat( c.getHeaderField( "Content-Range" ), is( "bytes 2-5/10" ) );
+    assertThat( read( c ), is( "2345" ) );
+
+    c = open( "files/test.txt" );
+    c.setRequestProperty( "Range", "bytes=-3" );
+    assertThat( c.getResponseCode(), is( 206 ) );
+    assertThat( read( c ), is( "789" ) );
+
+    c = open( "files/test.txt" );
+    c.setRequestProperty( "Range", "bytes=7-" );
+    assertThat( c.getResponseCode(), is( 206 ) );
+    assertThat( read( c ), is( "789" ) );
+
+    c = open( "files/test.txt" );
+    c.setRequestProperty( "Range", "bytes=10-20" );
+    assertThat( c.getResponseCode(), is( 416 ) );
+    assertThat( c.getHeaderField( "Content-Range" ), is( "bytes */10" ) );
+
+    c = open( "files/test.txt" );
+    c.setRequestProperty( "Range", "bytes=0-1,4-5" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( read( c ), is( "0123456789" ) );
+
+    c = open( "files/test.txt" );
+    c.setRequestProperty( "Range", "bytes=2-5" );
+    c.setRequestProperty( "If-Range", "Thu, 01 Jan 1970 00:00:00 GMT" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( read( c ), is( "0123456789" ) );
+  }
+
+  @Test
+  public void testIfModifiedSince() throws IOException {
+    HttpURLConnection c = open( "files/test.txt" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    String modified = c.getHeaderField( "Last-Modified" );
+    read( c );
+
+    c = open( "files/test.txt" );
+    c.setRequestProperty( "If-Modified-Since", modified );
+    assertThat( c.getResponseCode(), is( 304 ) );
+
+    c = open( "files/test.txt" );
+    c.setRequestProperty( "If-Modified-Since", "Thu, 01 Jan 1970 00:00:00 GMT" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    read( c );
+  }
+
+  @Test
+  public void testHeadAndMethods() throws IOException {
+    HttpURLConnection c = open( "files/test.txt" );
+    c.setRequestMethod( "HEAD" );
+    assertThat( c.getResponseCode(), is( 200 ) );
+    assertThat( c.getHeaderField( "Content-Length" ), is( "10" ) );
+
+    c = open( "files/test.txt" );
+    c.setRequestMethod( "DELETE" );
+    assertThat( c.getResponseCode(), is( 405 ) );
+  }
+
+  @Test
+  public void testParseRange() {
+    assertThat( StaticFileHandler.parseRange( "bytes=0-0", 10 ), is( new long[]{ 0, 0 } ) );
+    assertThat( StaticFileHandler.parseRange( "bytes=5-100", 10 ), is( new long[]{ 5, 9 } ) );
+    assertThat( StaticFileHandler.parseRange( "bytes=-100", 10 ), is( new long[]{ 0, 9 } ) );
+    assertThat( StaticFileHandler.parseRange( "bytes=-0", 10 ), is( new long[ 0 ] ) );
+    assertThat( StaticFileHandler.parseRange( "bytes=10-", 10 ), is( new long[ 0 ] ) );
+    assertThat( StaticFileHandler.parseRange( "bytes=5-4", 10 ), nullValue() );
+    assertThat( StaticFileHandler.parseRange( "bytes=x-4", 10 ), nullValue() );
+    assertThat( StaticFileHandler.parseRange( "items=0-4", 10 ), nullValue() );
+  }
+
+  @AfterClass
+  public static void tearDownSuite() {
+    server.destroy();
+  }
+
+  private static HttpURLConnection open( String path ) throws IOException {
+    return (HttpURLConnection)uri.resolve( path ).toURL().openConnection();
+  }
+
+  private static String read( HttpURLConnection c ) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try( InputStream in = c.getInputStream() ) {
+      byte[] b = new byte[ 1024 ];
+      int n;
+      while( ( n = in.read( b ) ) >= 0 ) {
+        buffer.write( b, 0, n );
+      }
+    }
+    return new String( buffer.toByteArray(), StandardCharsets.UTF_8 );
+  }
+
+  private static void write( File file, String content ) throws IOException {
+    try( FileOutputStream out = new FileOutputStream( file ) ) {
+      out.write( content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+public class CgroupLimitsTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private void write( Path dir, String name, String value ) throws Exception {
+    Files.createDirectories( dir );
+    Files.write( dir.resolve( name ), value.getBytes( StandardCharsets.US_ASCII ) );
+  }
+
+  @Test
+  public void testParse() {
+    assertThat( CgroupLimits.parseLimit( "max" ), is( -1L ) );
+    assertThat( CgroupLimits.parseLimit( "9223372036854771712" ), is( -1L ) );
+    assertThat( CgroupLimits.parseLimit( "536870912" ), is( 536870912L ) );
+    assertThat( CgroupLimits.parseCpus( "max 100000", null ), is( -1.0 ) );
+    assertThat( CgroupLimits.parseCpus( "150000 100000", null ), is( 1.5 ) );
+    assertThat( CgroupLimits.parseCpus( "-1", "100000" ), is( -1.0 ) );
+    assertThat( CgroupLimits.parseCpus( "50000", "100000" ), is( 0.5 ) );
+  }
+
+  @Test
+  public void testV2() throws Exception {
+    Path root = folder.getRoot().toPath();
+    write( root, "cgroup.controllers", "cpu memory" );
+    write( root.resolve( "app" ), "memory.max", "1073741824" );
+    write( root.resolve( "app" ), "cpu.max", "max 100000" );
+    write( root.resolve( "app/child" ), "memory.max", "max" );
+    write( root.resolve( "app/child" ), "cpu.max", "200000 100000" );
+    CgroupLimits limits = CgroupLimits.detect( root, Arrays.asList( "0::/app/child" ) );
+    assertThat( limits.getMemoryLimit(), is( 1073741824L ) );
+    assertThat( limits.getCpuLimit(), is( 2.0 ) );
+
+    limits = CgroupLimits.detect( root, Arrays.asList( "0::/missing" ) );
+    assertThat( limits.hasMemoryLimit(), is( false ) );
+    assertThat( limits.hasCpuLimit(), is( false ) );
+  }
+
+  @Test
+  public void testV1() throws Exception {
+    Path root = folder.getRoot().toPath();
+    write( root.resolve( "memory" ), "memory.limit_in_bytes", "9223372036854771712" );
+    write( root.resolve( "memory/docker/abc" ), "memory.limit_in_bytes", "536870912" );
+    write( root.resolve( "cpu" ), "cpu.cfs_quota_us", "50000" );
+    write( root.resolve( "cpu" ), "cpu.cfs_period_us", "100000" );
+    CgroupLimits limits = CgroupLimits.detect( root, Arrays.asList(
+        "4:memory:/docker/abc", "2:cpu,cpuacct:/docker/abc", "0::/" ) );
+    assertThat( limits.getMemoryLimit(), is( 536870912L ) );
+    assertThat( limits.getCpuLimit(), is( 0.5 ) );
+  }
+
+  @Test
+  public void testDetect() {
+    assertThat( CgroupLimits.detect(), notNullValue() );
+  }
+
+}
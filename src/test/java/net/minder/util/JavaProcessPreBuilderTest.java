@@ -18,16 +18,25 @@
 package net.minder.util;
 
 import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import static junit.framework.TestCase.fail;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -35,6 +44,9 @@ import static org.hamcrest.Matchers.nullValue;
 
 public class JavaProcessPreBuilderTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public void testJvmPath() {
     JavaProcessPreBuilder jpb;
@@ -334,4 +346,129 @@ public class JavaProcessPreBuilderTest {
     assertThat( jpb.prepare(), notNullValue() );
   }
 
+  // Runs until its input is closed.
+  public static class Waiting {
+    public static void main( String[] args ) throws IOException {
+      while( System.in.read() >= 0 ) {
+        // Discard.
+      }
+    }
+  }
+
+  @Test
+  public void testClassDataArchive() throws Exception {
+    File jar = jar( OutputCaptureTest.Chatty.class );
+    File archive = new File( folder.getRoot(), "app.jsa" );
+    JavaProcessPreBuilder jpb = new JavaProcessPreBuilder();
+    jpb.classPath( jar.getPath() );
+    jpb.main( OutputCaptureTest.Chatty.class );
+    jpb.args( "1" );
+    jpb.profile( JvmProfile.STARTUP, CgroupLimits.UNLIMITED ).classDataArchive( archive );
+    assertThat( jpb.getProfileArgs(), hasItem( "-XX:ArchiveClassesAtExit=" + archive.getPath() ) );
+    assertThat( jpb.start().waitFor(), is( 0 ) );
+    assertThat( archive.isFile(), is( true ) );
+    assertThat( jpb.getProfileArgs(), hasItem( "-XX:SharedArchiveFile=" + archive.getPath() ) );
+    assertThat( jpb.start().waitFor(), is( 0 ) );
+  }
+
+  @Test
+  public void testClassDataArchiveDumpedOnce() throws Exception {
+    File jar = jar( Waiting.class );
+    File archive = new File( folder.getRoot(), "app.jsa" );
+    String dump = "-XX:ArchiveClassesAtExit=" + archive.getPath();
+    List<Process> processes = new ArrayList<>();
+    try {
+      for( int i = 0; i < 2; i++ ) {
+        JavaProcessPreBuilder jpb = new JavaProcessPreBuilder();
+        jpb.classPath( jar.getPath() );
+        jpb.main( Waiting.class );
+        jpb.classDataArchive( archive );
+        assertThat( jpb.getProfileArgs().contains( dump ), is( i == 0 ) );
+        processes.add( jpb.start() );
+      }
+      int dumping = 0;
+      for( Process process: processes ) {
+        List<String> args = Arrays.asList( process.info().arguments().orElse( new String[ 0 ] ) );
+        assertThat( args, hasItem( Waiting.class.getName() ) );
+        if( args.contains( dump ) ) {
+          dumping++;
+        }
+      }
+      assertThat( dumping, is( 1 ) );
+      for( Process process: processes ) {
+        process.getOutputStream().close();
+        assertThat( process.waitFor(), is( 0 ) );
+      }
+      assertThat( archive.isFile(), is( true ) );
+    } finally {
+      for( Process process: processes ) {
+        process.destroyForcibly();
+      }
+    }
+  }
+
+  // Archives can only be created for class paths made of jars.
+  private File jar( Class<?> main ) throws IOException {
+    File jar = new File( folder.getRoot(), main.getSimpleName().toLowerCase() + ".jar" );
+    String entry = main.getName().replace( '.', '/' ) + ".class";
+    try( JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) );
+         InputStream in = getClass().getClassLoader().getResourceAsStream( entry ) ) {
+      out.putNextEntry( new JarEntry( entry ) );
+      in.transferTo( out );
+    }
+    return jar;
+  }
+
+  @Test
+  public void testProfile() throws Exception {
+    JavaProcessPreBuilder jpb;
+    CgroupLimits limits = new CgroupLimits( 1024L * 1024 * 1024, 1.5 );
+
+    jpb = new JavaProcessPreBuilder();
+    jpb.jvm( "test-jvm" );
+    jpb.main( "test-main" );
+    assertThat( jpb.getProfileArgs(), hasSize( 0 ) );
+
+    jpb = new JavaProcessPreBuilder();
+    jpb.jvm( "test-jvm" );
+    jpb.main( "test-main" );
+    jpb.opt( "Xss1m" );
+    jpb.profile( JvmProfile.STARTUP, limits );
+    assertThat( jpb.getProfileArgs(), contains(
+        "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC", "-Xmx512m", "-XX:ActiveProcessorCount=2" ) );
+    assertThat( jpb.getCmdArgs(), contains( "test-jvm",
+        "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC", "-Xmx512m", "-XX:ActiveProcessorCount=2",
+        "-Xss1m", "test-main" ) );
+
+    jpb = new JavaProcessPreBuilder();
+    jpb.main( "test-main" );
+    jpb.profile( JvmProfile.THROUGHPUT, limits );
+    assertThat( jpb.getProfileArgs(), contains(
+        "-XX:+UseParallelGC", "-Xms768m", "-Xmx768m", "-XX:ActiveProcessorCount=2" ) );
+
+    jpb = new JavaProcessPreBuilder();
+    jpb.main( "test-main" );
+    jpb.profile( JvmProfile.THROUGHPUT, new CgroupLimits( 4L * 1024 * 1024 * 1024, 4 ) );
+    assertThat( jpb.getProfileArgs(), contains(
+        "-XX:+UseG1GC", "-Xms3072m", "-Xmx3072m", "-XX:ActiveProcessorCount=4" ) );
+
+    jpb = new JavaProcessPreBuilder();
+    jpb.main( "test-main" );
+    jpb.profile( JvmProfile.THROUGHPUT, new CgroupLimits( 4L * 1024 * 1024 * 1024, 4 ), 4 );
+    assertThat( jpb.getProfileArgs(), contains(
+        "-XX:+UseParallelGC", "-Xms768m", "-Xmx768m", "-XX:ActiveProcessorCount=4" ) );
+
+    assertThat( JvmProfile.THROUGHPUT.getArgs( CgroupLimits.UNLIMITED, 1, 1 ), contains( "-XX:+UseParallelGC" ) );
+    assertThat( JvmProfile.THROUGHPUT.getArgs( CgroupLimits.UNLIMITED, 8, 1 ), contains( "-XX:+UseG1GC" ) );
+
+    for( JvmProfile profile: JvmProfile.values() ) {
+      jpb = new JavaProcessPreBuilder();
+      jpb.inheritClassPath();
+      jpb.main( OutputCaptureTest.Chatty.class );
+      jpb.args( "1" );
+      jpb.profile( profile, new CgroupLimits( 256L * 1024 * 1024, 1 ) );
+      assertThat( jpb.start().waitFor(), is( 0 ) );
+    }
+  }
+
 }
@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class OutputCaptureTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public static class Chatty {
+    public static void main( String[] args ) {
+      int lines = Integer.parseInt( args[ 0 ] );
+      for( int i = 0; i < lines; i++ ) {
+        System.out.println( "out-" + i );
+      }
+      System.err.println( "err-0" );
+      System.err.print( "err-1" );
+    }
+  }
+
+  @Test
+  public void testCapture() throws Exception {
+    final AtomicInteger stdout = new AtomicInteger();
+    final AtomicInteger stderr = new AtomicInteger();
+    File log = new File( folder.getRoot(), "child.log" );
+
+    OutputCapture capture = new OutputCapture()
+        .lines( 10 )
+        .logFile( log, 4096, 2 )
+        .listener( new LineListener() {
+          @Override
+          public void onLine( OutputCapture.Stream stream, String line ) {
+            ( stream == OutputCapture.Stream.STDOUT ? stdout : stderr ).incrementAndGet();
+          }
+        } );
+
+    JavaProcessPreBuilder jpb = new JavaProcessPreBuilder();
+    jpb.inheritClassPath();
+    jpb.inheritIO();
+    jpb.main( Chatty.class );
+    jpb.args( "5000" );
+    jpb.capture( capture );
+    Process process = jpb.start();
+
+    assertThat( process.waitFor( 30, TimeUnit.SECONDS ), is( true ) );
+    assertThat( capture.awaitDrained( 30, TimeUnit.SECONDS ), is( true ) );
+
+    List<String> lines = capture.getStdout();
+    assertThat( lines, hasSize( 10 ) );
+    assertThat( lines.get( 0 ), is( "out-4990" ) );
+    assertThat( lines.get( 9 ), is( "out-4999" ) );
+    assertThat( capture.getStderr(), contains( "err-0", "err-1" ) );
+    assertThat( capture.getLineCount( OutputCapture.Stream.STDOUT ), is( 5000L ) );
+    assertThat( stdout.get(), is( 5000 ) );
+    assertThat( stderr.get(), is( 2 ) );
+
+    assertThat( log.length(), lessThanOrEqualTo( 4096L ) );
+    assertThat( new File( log.getPath() + ".1" ).length(), lessThanOrEqualTo( 4096L ) );
+    assertThat( new File( log.getPath() + ".2" ).exists(), is( true ) );
+    assertThat( new File( log.getPath() + ".3" ).exists(), is( false ) );
+  }
+
+  @Test
+  public void testAttachOnce() throws Exception {
+    OutputCapture capture = new OutputCapture();
+    JavaProcessPreBuilder jpb = new JavaProcessPreBuilder();
+    jpb.inheritClassPath();
+    jpb.main( Chatty.class );
+    jpb.args( "1" );
+    jpb.capture( capture );
+    Process process = jpb.start();
+    Set<ProcessHandle> children = ProcessHandle.current().children().collect( Collectors.toSet() );
+    try {
+      jpb.start();
+      throw new AssertionError( "Expected IllegalStateException" );
+    } catch( IllegalStateException e ) {
+      // Expected.
+    }
+    assertThat( children.containsAll( ProcessHandle.current().children().collect( Collectors.toSet() ) ), is( true ) );
+    process.waitFor( 30, TimeUnit.SECONDS );
+    assertThat( capture.awaitDrained( 30, TimeUnit.SECONDS ), is( true ) );
+    assertThat( capture.getStdout(), contains( "out-0" ) );
+  }
+
+  @Test
+  public void testLongLinesSplit() throws Exception {
+    OutputCapture capture = new OutputCapture().lineLength( 4 );
+    JavaProcessPreBuilder jpb = new JavaProcessPreBuilder();
+    jpb.inheritClassPath();
+    jpb.main( Chatty.class );
+    jpb.args( "1" );
+    jpb.capture( capture );
+    Process process = jpb.start();
+    process.waitFor( 30, TimeUnit.SECONDS );
+    assertThat( capture.awaitDrained( 30, TimeUnit.SECONDS ), is( true ) );
+    assertThat( capture.getStdout(), contains( "out-", "0" ) );
+    assertThat( capture.getStderr(), contains( "err-", "0", "err-", "1" ) );
+  }
+
+  @Test
+  public void testRingBuffer() {
+    LineRingBuffer buffer = new LineRingBuffer( 3 );
+    assertThat( buffer.getLines(), hasSize( 0 ) );
+    buffer.add( "a" );
+    buffer.add( "b" );
+    assertThat( buffer.getLines(), contains( "a", "b" ) );
+    buffer.add( "c" );
+    buffer.add( "d" );
+    assertThat( buffer.getLines(), contains( "b", "c", "d" ) );
+    assertThat( buffer.getTotal(), is( 4L ) );
+    assertThat( buffer.getDropped(), is( 1L ) );
+  }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.minder.util;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assume.assumeTrue;
+
+public class ProcessSamplerTest {
+
+  public static class Busy {
+    public static void main( String[] args ) throws Exception {
+      long until = System.currentTimeMillis() + Long.parseLong( args[ 0 ] );
+      byte[][] garbage = new byte[ 64 ][];
+      int i = 0;
+      while( System.currentTimeMillis() < until ) {
+        garbage[ i++ % garbage.length ] = new byte[ 64 * 1024 ];
+      }
+    }
+  }
+
+  @Test
+  public void testParse() {
+    String stat = "1234 (a (b) c) S 1 1234 1234 0 -1 4194304 100 0 0 0 250 50 0 0 20 0 12 0 100 0 0";
+    assertThat( ProcessSampler.parseCpuMillis( stat ), is( 3000L ) );
+    assertThat( ProcessSampler.parseCpuMillis( "garbage" ), is( -1L ) );
+    String status = "Name:\tjava\nVmRSS:\t   20480 kB\nThreads:\t17\n";
+    assertThat( ProcessSampler.parseStatusValue( status, "VmRSS:" ), is( 20480L ) );
+    assertThat( ProcessSampler.parseStatusValue( status, "Threads:" ), is( 17L ) );
+    assertThat( ProcessSampler.parseStatusValue( status, "VmSwap:" ), is( -1L ) );
+  }
+
+  @Test
+  public void testSample() throws Exception {
+    assumeTrue( ProcessSampler.isSupported() );
+    ProcessSampler sampler = new ProcessSampler().interval( 50, TimeUnit.MILLISECONDS ).samples( 20 ).jvm();
+    try {
+      JavaProcessPreBuilder jpb = new JavaProcessPreBuilder();
+      jpb.inheritClassPath();
+      jpb.inheritIO();
+      jpb.main( Busy.class );
+      jpb.args( "3000" );
+      jpb.sample( sampler );
+      Process process = jpb.start();
+      ProcessStats stats = sampler.getStats( process );
+      assertThat( stats, notNullValue() );
+
+      assertThat( process.waitFor( 30, TimeUnit.SECONDS ), is( true ) );
+      long deadline = System.currentTimeMillis() + 5000;
+      while( stats.isAlive() && System.currentTimeMillis() < deadline ) {
+        Thread.sleep( 50 );
+      }
+      assertThat( stats.isAlive(), is( false ) );
+      while( sampler.getStats( process ) != null && System.currentTimeMillis() < deadline ) {
+        Thread.sleep( 50 );
+      }
+      assertThat( sampler.getStats( process ), nullValue() );
+
+      List<ProcessSample> samples = stats.getSamples();
+      assertThat( samples.size(), lessThanOrEqualTo( 20 ) );
+      assertThat( stats.getSampleCount(), greaterThan( 20L ) );
+      assertThat( samples.get( samples.size() - 1 ), is( stats.getLatest() ) );
+      assertThat( stats.getLatest().getCpuMillis(), greaterThan( 0L ) );
+      assertThat( stats.getPeakRssBytes(), greaterThan( 0L ) );
+      assertThat( stats.getPeakThreads(), greaterThan( 1 ) );
+      assertThat( stats.getPeakFds(), greaterThan( 2 ) );
+      assertThat( stats.getPeakCpuLoad(), greaterThan( 0.0 ) );
+      assertThat( stats.getPeakHeapUsed(), greaterThan( 0L ) );
+      long gcCount = -1;
+      for( ProcessSample sample: samples ) {
+        gcCount = Math.max( gcCount, sample.getGcCount() );
+      }
+      assertThat( gcCount, greaterThanOrEqualTo( 1L ) );
+    } finally {
+      sampler.close();
+    }
+  }
+
+}